@@ -1,4 +1,5 @@
 import java.util.Comparator;
+import java.util.function.ToLongFunction;
 
 /**
  * AVLTree: A self-balancing Binary Search Tree (BST).
@@ -6,7 +7,7 @@ import java.util.Comparator;
  * Properties:
  * <li>The height difference between left and right subtrees is at most 1.</li>
  *
- * @param <T> generic type (must be Comparable or use Comparator)
+ * @param <T> generic type (must be Comparable or use Comparator / key extractor)
  */
 public class AVLTree<T> extends BinarySearchTree<T> {
     /* ==================== Constructors ==================== */
@@ -26,8 +27,29 @@ public class AVLTree<T> extends BinarySearchTree<T> {
         super(comparator, allowDuplicates);
     }
 
+    public AVLTree(ToLongFunction<T> keyExtractor) {
+        super(keyExtractor);
+    }
+
+    public AVLTree(ToLongFunction<T> keyExtractor, boolean allowDuplicates) {
+        super(keyExtractor, allowDuplicates);
+    }
+
+    public AVLTree(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker) {
+        super(keyExtractor, tieBreaker);
+    }
+
+    public AVLTree(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker, boolean allowDuplicates) {
+        super(keyExtractor, tieBreaker, allowDuplicates);
+    }
+
     /* ==================== Utilities ==================== */
 
+    @Override
+    protected BinarySearchTree<T> newTree() {
+        return new AVLTree<>(keyExtractor, comparator, allowDuplicates);
+    }
+
     private void updateHeight(TreeNode<T> node) {
         if (isNil(node)) return;
         node.height = Math.max(height(node.left), height(node.right)) + 1;
@@ -135,16 +157,33 @@ public class AVLTree<T> extends BinarySearchTree<T> {
     /* ==================== Insertion & Deletion ==================== */
 
     @Override
-    protected TreeNode<T> insert(TreeNode<T> node, T data) {
-        node = super.insert(node, data);
+    protected TreeNode<T> insert(TreeNode<T> node, T data, long key) {
+        node = super.insert(node, data, key);
         updateHeight(node);
         return fixBalance(node);
     }
 
     @Override
-    protected TreeNode<T> delete(TreeNode<T> node, T data) {
-        node = super.delete(node, data);
+    protected TreeNode<T> delete(TreeNode<T> node, T data, long key) {
+        node = super.delete(node, data, key);
         updateHeight(node);
         return fixBalance(node);
     }
+
+    /* ==================== Validation ==================== */
+
+    @Override
+    public int height() {
+        return height(root);
+    }
+
+    @Override
+    protected void checkNode(TreeNode<T> node) {
+        if (node.height != Math.max(height(node.left), height(node.right)) + 1) {
+            throw new IllegalStateException("Height violated at " + node.data);
+        }
+        if (Math.abs(balanceFactor(node)) > 1) {
+            throw new IllegalStateException("Balance violated at " + node.data);
+        }
+    }
 }
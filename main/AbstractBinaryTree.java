@@ -19,6 +19,13 @@ public abstract class AbstractBinaryTree<T> {
         return node == null;
     }
 
+    /**
+     * @return the sentinel used for empty subtrees
+     */
+    protected TreeNode<T> nil() {
+        return null;
+    }
+
     public List<T> inOrderTraversal() {
         List<T> list = new ArrayList<>();
         inOrderTraversal(root, list);
@@ -0,0 +1,127 @@
+/**
+ * Immutable search tree in Eytzinger (BFS) layout, produced by {@link BinarySearchTree#freeze()}.
+ * <p>
+ * Distinct keys are stored in a flat array where position {@code i} has children {@code 2i} and
+ * {@code 2i + 1} (position 0 is unused and means "not found"). The top levels of the tree share a few
+ * cache lines and the children of a position are adjacent, so descents touch memory in a predictable,
+ * prefetch-friendly pattern. A descent is a branch-free loop; the answer is decoded from the final
+ * index's turn bits:
+ * <li>the last left turn is the first key {@code >=} (or {@code >}) the target</li>
+ * <li>the last right turn is the last key {@code <} (or {@code <=}) the target</li>
+ * <p>
+ * {@code before[i]} counts the values (duplicates included) ordered before the key at position
+ * {@code i}, which keeps {@code rank} and {@code select} working.
+ */
+public abstract class AbstractFrozenTree {
+    /**
+     * Largest number of distinct keys: descents compute {@code 2i + 1} for positions up to {@code n},
+     * which must not overflow an {@code int}.
+     */
+    public static final int MAX_KEYS = (1 << 30) - 1;
+
+    protected final int n;
+    protected final int[] before;
+    private final int total;
+
+    /**
+     * @param order  sorted index of the key stored at each position (see {@link #layout(int)})
+     * @param counts occurrences of each distinct key, in sorted order
+     */
+    protected AbstractFrozenTree(int[] order, int[] counts) {
+        this.n = checkKeys(order.length - 1);
+        int[] prefix = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            prefix[i + 1] = prefix[i] + counts[i];
+        }
+        this.total = prefix[n];
+        this.before = new int[n + 1];
+        for (int position = 1; position <= n; position++) {
+            before[position] = prefix[order[position]];
+        }
+    }
+
+    /**
+     * @return {@code order[position]} = sorted index of the key at that Eytzinger position
+     */
+    protected static int[] layout(int n) {
+        int[] order = new int[checkKeys(n) + 1];
+        layout(order, 1, 0);
+        return order;
+    }
+
+    private static int checkKeys(int n) {
+        if (n > MAX_KEYS) {
+            throw new IllegalArgumentException("Too many distinct keys to freeze: " + n + " > " + MAX_KEYS);
+        }
+        return n;
+    }
+
+    /**
+     * Assign sorted indices to the subtree at {@code position} in in-order sequence.
+     *
+     * @return next unassigned sorted index
+     */
+    private static int layout(int[] order, int position, int next) {
+        if (position >= order.length) return next;
+        next = layout(order, 2 * position, next);
+        order[position] = next++;
+        return layout(order, 2 * position + 1, next);
+    }
+
+    /**
+     * @return position of the last left turn of a finished descent (0 if none)
+     */
+    protected static int lastLeft(int i) {
+        return i >> (Integer.numberOfTrailingZeros(~i) + 1);
+    }
+
+    /**
+     * @return position of the last right turn of a finished descent (0 if none)
+     */
+    protected static int lastRight(int i) {
+        return i >> (Integer.numberOfTrailingZeros(i) + 1);
+    }
+
+    /**
+     * @return number of values, duplicates included
+     */
+    public int size() {
+        return total;
+    }
+
+    /**
+     * @return 1-based rank of the key at {@code position} (0 for position 0)
+     */
+    protected int rankAt(int position) {
+        return position == 0 ? 0 : before[position] + 1;
+    }
+
+    /**
+     * @return number of occurrences of the key at {@code position} (0 for position 0)
+     */
+    public int countAt(int position) {
+        if (position == 0) return 0;
+        // In-order successor: leftmost position of the right subtree, else the last left turn above
+        int next = 2 * position + 1;
+        if (next <= n) {
+            while (2 * next <= n) next *= 2;
+        } else {
+            next = lastLeft(position);
+        }
+        return (next == 0 ? total : before[next]) - before[position];
+    }
+
+    /**
+     * Find the k-th smallest value (1-based).
+     *
+     * @return its position, or 0 if k is invalid
+     */
+    public int select(int k) {
+        if (k <= 0 || k > total) return 0;
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (before[i] < k ? 1 : 0);
+        }
+        return lastRight(i);
+    }
+}
@@ -1,29 +1,72 @@
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * Binary Search Tree
+ * <p>
+ * Keys are ordered either by a {@link Comparator} / natural ordering, or by a primitive {@code long}
+ * sort key extracted once per node ({@code keyExtractor}), optionally tie-broken by a comparator.
+ * In the latter mode the extracted key is cached in {@link TreeNode#key}, so most comparisons
+ * during a descent are plain {@code long} compares on data already in the node.
  *
- * @param <T> generic type (must be Comparable or use Comparator)
+ * @param <T> generic type (must be Comparable or use Comparator / key extractor)
  */
 public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
+    /**
+     * Subtrees with at most this many values are processed sequentially by the parallel operations.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
     protected final Comparator<T> comparator;
+    protected final ToLongFunction<T> keyExtractor;
 
     /* ==================== Constructors ==================== */
 
     public BinarySearchTree() {
-        this(null, false);
+        this(null, null, false);
     }
 
     public BinarySearchTree(boolean allowDuplicates) {
-        this(null, allowDuplicates);
+        this(null, null, allowDuplicates);
     }
 
     public BinarySearchTree(Comparator<T> comparator) {
-        this(comparator, false);
+        this(null, comparator, false);
     }
 
     public BinarySearchTree(Comparator<T> comparator, boolean allowDuplicates) {
+        this(null, comparator, allowDuplicates);
+    }
+
+    public BinarySearchTree(ToLongFunction<T> keyExtractor) {
+        this(keyExtractor, null, false);
+    }
+
+    public BinarySearchTree(ToLongFunction<T> keyExtractor, boolean allowDuplicates) {
+        this(keyExtractor, null, allowDuplicates);
+    }
+
+    public BinarySearchTree(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker) {
+        this(keyExtractor, tieBreaker, false);
+    }
+
+    /**
+     * @param keyExtractor primary {@code long} sort key, or {@code null} to order by {@code comparator}
+     * @param comparator   ordering when {@code keyExtractor} is {@code null}, otherwise tie-breaker for
+     *                     equal keys ({@code null} means equal keys are equal values)
+     */
+    public BinarySearchTree(ToLongFunction<T> keyExtractor, Comparator<T> comparator, boolean allowDuplicates) {
         super(allowDuplicates);
+        this.keyExtractor = keyExtractor;
         this.comparator = comparator;
     }
 
@@ -31,15 +74,44 @@ public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
 
     /**
      * Compare two values using either:
+     * <li>the extracted {@code long} key, then the tie-breaker</li>
      * <li>the provided comparator</li>
      * <li>or natural ordering (Comparable)</li>
      */
     @SuppressWarnings("unchecked")
     protected int compare(T a, T b) {
+        if (keyExtractor != null) {
+            int cmp = Long.compare(keyExtractor.applyAsLong(a), keyExtractor.applyAsLong(b));
+            if (cmp != 0 || comparator == null) return cmp;
+            return comparator.compare(a, b);
+        }
         if (comparator != null) return comparator.compare(a, b);
         return ((Comparable<T>) a).compareTo(b);
     }
 
+    /**
+     * Compare a value (with its pre-extracted key) against a node, using the key cached in the node.
+     */
+    protected int compare(T data, long key, TreeNode<T> node) {
+        if (keyExtractor == null) return compare(data, node.data);
+        int cmp = Long.compare(key, node.key);
+        if (cmp != 0 || comparator == null) return cmp;
+        return comparator.compare(data, node.data);
+    }
+
+    /**
+     * Extract the {@code long} sort key of a value (0 when not in key-extractor mode).
+     */
+    protected long key(T data) {
+        return keyExtractor == null ? 0L : keyExtractor.applyAsLong(data);
+    }
+
+    protected TreeNode<T> createNode(T data, long key) {
+        TreeNode<T> node = new TreeNode<>(data);
+        node.key = key;
+        return node;
+    }
+
     protected void updateSize(TreeNode<T> node) {
         if (isNil(node)) return;
         node.size = node.count + size(node.left) + size(node.right);
@@ -53,19 +125,26 @@ public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
         return size(root);
     }
 
+    /**
+     * @return an empty tree of the same kind and ordering as this one
+     */
+    protected BinarySearchTree<T> newTree() {
+        return new BinarySearchTree<>(keyExtractor, comparator, allowDuplicates);
+    }
+
     /* ==================== Insertion ==================== */
 
     public void insert(T data) {
-        root = insert(root, data);
+        root = insert(root, data, key(data));
     }
 
-    protected TreeNode<T> insert(TreeNode<T> node, T data) {
-        if (isNil(node)) return new TreeNode<>(data);
-        int cmp = compare(data, node.data);
+    protected TreeNode<T> insert(TreeNode<T> node, T data, long key) {
+        if (isNil(node)) return createNode(data, key);
+        int cmp = compare(data, key, node);
         if (cmp < 0) {
-            node.left = insert(node.left, data);
+            node.left = insert(node.left, data, key);
         } else if (cmp > 0) {
-            node.right = insert(node.right, data);
+            node.right = insert(node.right, data, key);
         } else if (allowDuplicates) {
             node.count++;
         }
@@ -76,14 +155,26 @@ public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
     /* ==================== Searching ==================== */
 
     public TreeNode<T> search(T data) {
-        return search(root, data);
+        return search(root, data, key(data));
     }
 
-    private TreeNode<T> search(TreeNode<T> node, T data) {
+    private TreeNode<T> search(TreeNode<T> node, T data, long key) {
         if (isNil(node)) return node;
-        int cmp = compare(data, node.data);
+        int cmp = compare(data, key, node);
         if (cmp == 0) return node;
-        return cmp < 0 ? search(node.left, data) : search(node.right, data);
+        return cmp < 0 ? search(node.left, data, key) : search(node.right, data, key);
+    }
+
+    public boolean contains(T data) {
+        return !isNil(search(data));
+    }
+
+    /**
+     * @return number of occurrences of {@code data} (0 if not found)
+     */
+    public int count(T data) {
+        TreeNode<T> node = search(data);
+        return isNil(node) ? 0 : node.count;
     }
 
     /**
@@ -95,19 +186,28 @@ public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
         return node;
     }
 
+    /**
+     * Find maximum node in a subtree (rightmost node).
+     */
+    protected TreeNode<T> findMax(TreeNode<T> node) {
+        if (isNil(node)) return node;
+        while (!isNil(node.right)) node = node.right;
+        return node;
+    }
+
     /* ==================== Deletion ==================== */
 
     public void delete(T data) {
-        root = delete(root, data);
+        root = delete(root, data, key(data));
     }
 
-    protected TreeNode<T> delete(TreeNode<T> node, T data) {
+    protected TreeNode<T> delete(TreeNode<T> node, T data, long key) {
         if (isNil(node)) return node;
-        int cmp = compare(data, node.data);
+        int cmp = compare(data, key, node);
         if (cmp < 0) {
-            node.left = delete(node.left, data);
+            node.left = delete(node.left, data, key);
         } else if (cmp > 0) {
-            node.right = delete(node.right, data);
+            node.right = delete(node.right, data, key);
         } else {
             if (node.count > 1) {
                 node.count--;
@@ -118,9 +218,10 @@ public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
             } else {
                 TreeNode<T> successor = findMin(node.right);
                 node.data = successor.data;
+                node.key = successor.key;
                 node.count = successor.count;
                 successor.count = 1;
-                node.right = delete(node.right, successor.data);
+                node.right = delete(node.right, successor.data, successor.key);
             }
         }
         updateSize(node);
@@ -136,15 +237,15 @@ public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
      * @return rank (0 if not found)
      */
     public int rank(T data) {
-        return rank(root, data);
+        return rank(root, data, key(data));
     }
 
-    private int rank(TreeNode<T> node, T data) {
+    private int rank(TreeNode<T> node, T data, long key) {
         if (isNil(node)) return 0;
-        int cmp = compare(data, node.data);
+        int cmp = compare(data, key, node);
         if (cmp == 0) return size(node.left) + 1;
-        if (cmp < 0) return rank(node.left, data);
-        return rank(node.right, data) + size(node.left) + node.count;
+        if (cmp < 0) return rank(node.left, data, key);
+        return rank(node.right, data, key) + size(node.left) + node.count;
     }
 
     /**
@@ -165,4 +266,319 @@ public class BinarySearchTree<T> extends AbstractBinaryTree<T> {
         if (k <= leftSize + node.count) return node.data;
         return select(node.right, k - leftSize - node.count);
     }
+
+    /* ==================== Validation ==================== */
+
+    /**
+     * @return number of nodes on the longest root-to-leaf path (0 if empty)
+     */
+    public int height() {
+        return height(root);
+    }
+
+    private int height(TreeNode<T> node) {
+        if (isNil(node)) return 0;
+        return Math.max(height(node.left), height(node.right)) + 1;
+    }
+
+    /**
+     * Verify ordering and size metadata (plus balancing metadata in subclasses) of the whole tree in O(n).
+     *
+     * @throws IllegalStateException describing the first violation found
+     */
+    public void checkInvariants() {
+        checkInvariants(root, nil(), nil());
+    }
+
+    private void checkInvariants(TreeNode<T> node, TreeNode<T> lower, TreeNode<T> upper) {
+        if (isNil(node)) return;
+        if (!isNil(lower) && compare(node.data, node.key, lower) <= 0
+                || !isNil(upper) && compare(node.data, node.key, upper) >= 0) {
+            throw new IllegalStateException("Order violated at " + node.data);
+        }
+        if (keyExtractor != null && node.key != keyExtractor.applyAsLong(node.data)) {
+            throw new IllegalStateException("Stale key at " + node.data);
+        }
+        if (node.count < 1 || node.count > 1 && !allowDuplicates) {
+            throw new IllegalStateException("Invalid count " + node.count + " at " + node.data);
+        }
+        if (node.size != node.count + size(node.left) + size(node.right)) {
+            throw new IllegalStateException("Size violated at " + node.data);
+        }
+        checkInvariants(node.left, lower, node);
+        checkInvariants(node.right, node, upper);
+        checkNode(node);
+    }
+
+    /**
+     * Hook for subclasses to verify balancing metadata of a node whose subtrees were already checked.
+     */
+    protected void checkNode(TreeNode<T> node) {
+    }
+
+    /* ==================== Freezing ==================== */
+
+    /**
+     * @return ordering of this tree as a standalone comparator
+     */
+    @SuppressWarnings("unchecked")
+    private Comparator<T> ordering() {
+        Comparator<T> order = comparator != null ? comparator : (a, b) -> ((Comparable<T>) a).compareTo(b);
+        if (keyExtractor == null) return order;
+        Comparator<T> byKey = Comparator.comparingLong(keyExtractor);
+        return comparator == null ? byKey : byKey.thenComparing(comparator);
+    }
+
+    private List<TreeNode<T>> nodes() {
+        List<TreeNode<T>> nodes = new ArrayList<>();
+        filter(root, data -> true, nodes);
+        return nodes;
+    }
+
+    /**
+     * Snapshot the tree into an immutable Eytzinger layout for read-heavy phases.
+     * Later updates to this tree are not reflected.
+     *
+     * @throws IllegalArgumentException if there are more than {@link AbstractFrozenTree#MAX_KEYS} distinct keys
+     */
+    public FrozenTree<T> freeze() {
+        List<TreeNode<T>> nodes = nodes();
+        Object[] sorted = new Object[nodes.size()];
+        int[] counts = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            sorted[i] = nodes.get(i).data;
+            counts[i] = nodes.get(i).count;
+        }
+        return new FrozenTree<>(sorted, counts, ordering());
+    }
+
+    /**
+     * Snapshot the tree into an immutable Eytzinger layout of {@code long} keys.
+     *
+     * @param key order-preserving mapping; values mapping to the same key are merged
+     * @throws IllegalArgumentException if there are more than {@link AbstractFrozenTree#MAX_KEYS} distinct keys,
+     *                                  or {@code key} decreases somewhere along the tree order
+     */
+    public FrozenLongTree freezeLong(ToLongFunction<? super T> key) {
+        List<TreeNode<T>> nodes = nodes();
+        long[] sorted = new long[nodes.size()];
+        int[] counts = new int[nodes.size()];
+        int n = 0;
+        for (TreeNode<T> node : nodes) {
+            long k = key.applyAsLong(node.data);
+            if (n > 0 && k < sorted[n - 1]) {
+                throw new IllegalArgumentException("Key mapping is not order-preserving: " + node.data + " maps to "
+                        + k + " after " + sorted[n - 1]);
+            }
+            if (n > 0 && sorted[n - 1] == k) {
+                counts[n - 1] += node.count;
+            } else {
+                sorted[n] = k;
+                counts[n++] = node.count;
+            }
+        }
+        return new FrozenLongTree(sorted, counts, n);
+    }
+
+    /**
+     * Snapshot the tree into an immutable Eytzinger layout of {@code int} keys.
+     *
+     * @param key order-preserving mapping; values mapping to the same key are merged
+     * @throws IllegalArgumentException if there are more than {@link AbstractFrozenTree#MAX_KEYS} distinct keys,
+     *                                  or {@code key} decreases somewhere along the tree order
+     */
+    public FrozenIntTree freezeInt(ToIntFunction<? super T> key) {
+        List<TreeNode<T>> nodes = nodes();
+        int[] sorted = new int[nodes.size()];
+        int[] counts = new int[nodes.size()];
+        int n = 0;
+        for (TreeNode<T> node : nodes) {
+            int k = key.applyAsInt(node.data);
+            if (n > 0 && k < sorted[n - 1]) {
+                throw new IllegalArgumentException("Key mapping is not order-preserving: " + node.data + " maps to "
+                        + k + " after " + sorted[n - 1]);
+            }
+            if (n > 0 && sorted[n - 1] == k) {
+                counts[n - 1] += node.count;
+            } else {
+                sorted[n] = k;
+                counts[n++] = node.count;
+            }
+        }
+        return new FrozenIntTree(sorted, counts, n);
+    }
+
+    /* ==================== Parallel ==================== */
+
+    /**
+     * Apply {@code action} to every value (duplicates included) in parallel, in no particular order.
+     */
+    public void parallelForEach(Consumer<? super T> action) {
+        parallelForEach(action, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param threshold subtree size at or below which work is done sequentially
+     * @throws IllegalArgumentException if {@code threshold} is negative
+     */
+    public void parallelForEach(Consumer<? super T> action, int threshold) {
+        checkThreshold(threshold);
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> parallelForEach(root, action, threshold)));
+    }
+
+    private static void checkThreshold(int threshold) {
+        if (threshold < 0) throw new IllegalArgumentException("Negative parallel threshold: " + threshold);
+    }
+
+    private void parallelForEach(TreeNode<T> node, Consumer<? super T> action, int threshold) {
+        if (size(node) <= threshold) {
+            forEach(node, action);
+            return;
+        }
+        ForkJoinTask<?> left = ForkJoinTask.adapt(() -> parallelForEach(node.left, action, threshold)).fork();
+        for (int i = 0; i < node.count; i++) {
+            action.accept(node.data);
+        }
+        parallelForEach(node.right, action, threshold);
+        left.join();
+    }
+
+    private void forEach(TreeNode<T> node, Consumer<? super T> action) {
+        if (isNil(node)) return;
+        forEach(node.left, action);
+        for (int i = 0; i < node.count; i++) {
+            action.accept(node.data);
+        }
+        forEach(node.right, action);
+    }
+
+    /**
+     * Reduce all values (duplicates included) in parallel. Partial results are always combined in
+     * in-order sequence, so {@code combiner} only needs to be associative.
+     *
+     * @param identity    identity value for both {@code accumulator} and {@code combiner}
+     * @param accumulator folds one value into a partial result
+     * @param combiner    combines the partial results of two adjacent ranges (left, right)
+     */
+    public <U> U parallelReduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
+        return parallelReduce(identity, accumulator, combiner, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public <U> U parallelReduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner,
+                                int threshold) {
+        checkThreshold(threshold);
+        return ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(
+                () -> parallelReduce(root, identity, accumulator, combiner, threshold)));
+    }
+
+    private <U> U parallelReduce(TreeNode<T> node, U identity, BiFunction<U, ? super T, U> accumulator,
+                                 BinaryOperator<U> combiner, int threshold) {
+        if (size(node) <= threshold) return reduce(node, identity, accumulator);
+        ForkJoinTask<U> left = ForkJoinTask.adapt(
+                () -> parallelReduce(node.left, identity, accumulator, combiner, threshold)).fork();
+        U middle = identity;
+        for (int i = 0; i < node.count; i++) {
+            middle = accumulator.apply(middle, node.data);
+        }
+        U right = parallelReduce(node.right, identity, accumulator, combiner, threshold);
+        return combiner.apply(combiner.apply(left.join(), middle), right);
+    }
+
+    private <U> U reduce(TreeNode<T> node, U result, BiFunction<U, ? super T, U> accumulator) {
+        if (isNil(node)) return result;
+        result = reduce(node.left, result, accumulator);
+        for (int i = 0; i < node.count; i++) {
+            result = accumulator.apply(result, node.data);
+        }
+        return reduce(node.right, result, accumulator);
+    }
+
+    /**
+     * Build a new, perfectly balanced tree of the same kind holding the values matching {@code predicate}
+     * (duplicate counts are kept). Both the filtering and the construction run in parallel.
+     */
+    public BinarySearchTree<T> parallelFilter(Predicate<? super T> predicate) {
+        return parallelFilter(predicate, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public BinarySearchTree<T> parallelFilter(Predicate<? super T> predicate, int threshold) {
+        checkThreshold(threshold);
+        List<List<TreeNode<T>>> chunks = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(
+                () -> parallelFilter(root, predicate, threshold)));
+        List<TreeNode<T>> matches = new ArrayList<>();
+        chunks.forEach(matches::addAll);
+        BinarySearchTree<T> tree = newTree();
+        if (matches.isEmpty()) return tree;
+        // Depth of the deepest level, which is only partially filled unless the tree is perfect
+        int maxDepth = 31 - Integer.numberOfLeadingZeros(matches.size());
+        tree.root = ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(
+                () -> tree.build(matches, 0, matches.size(), 0, maxDepth, threshold)));
+        return tree;
+    }
+
+    /**
+     * @return in-order chunks of matching nodes (one per sequential leaf task)
+     */
+    private List<List<TreeNode<T>>> parallelFilter(TreeNode<T> node, Predicate<? super T> predicate,
+                                                   int threshold) {
+        List<List<TreeNode<T>>> chunks = new ArrayList<>();
+        if (size(node) <= threshold) {
+            List<TreeNode<T>> chunk = new ArrayList<>();
+            filter(node, predicate, chunk);
+            chunks.add(chunk);
+            return chunks;
+        }
+        ForkJoinTask<List<List<TreeNode<T>>>> left = ForkJoinTask.adapt(
+                () -> parallelFilter(node.left, predicate, threshold)).fork();
+        List<List<TreeNode<T>>> right = parallelFilter(node.right, predicate, threshold);
+        chunks.addAll(left.join());
+        if (predicate.test(node.data)) chunks.add(List.of(node));
+        chunks.addAll(right);
+        return chunks;
+    }
+
+    private void filter(TreeNode<T> node, Predicate<? super T> predicate, List<TreeNode<T>> matches) {
+        if (isNil(node)) return;
+        filter(node.left, predicate, matches);
+        if (predicate.test(node.data)) matches.add(node);
+        filter(node.right, predicate, matches);
+    }
+
+    /**
+     * Build a balanced subtree from the in-order source nodes in [lo, hi).
+     *
+     * @param depth    depth of the subtree root
+     * @param maxDepth depth of the deepest level of the whole tree
+     */
+    private TreeNode<T> build(List<TreeNode<T>> sources, int lo, int hi, int depth, int maxDepth, int threshold) {
+        if (lo >= hi) return nil();
+        int mid = (lo + hi) >>> 1;
+        TreeNode<T> source = sources.get(mid);
+        TreeNode<T> node = createNode(source.data, source.key);
+        node.count = source.count;
+        TreeNode<T> left, right;
+        if (hi - lo > threshold) {
+            ForkJoinTask<TreeNode<T>> leftTask = ForkJoinTask.adapt(
+                    () -> build(sources, lo, mid, depth + 1, maxDepth, threshold)).fork();
+            right = build(sources, mid + 1, hi, depth + 1, maxDepth, threshold);
+            left = leftTask.join();
+        } else {
+            left = build(sources, lo, mid, depth + 1, maxDepth, threshold);
+            right = build(sources, mid + 1, hi, depth + 1, maxDepth, threshold);
+        }
+        node.left = left;
+        node.right = right;
+        if (!isNil(left)) left.parent = node;
+        if (!isNil(right)) right.parent = node;
+        node.height = Math.max(isNil(left) ? 0 : left.height, isNil(right) ? 0 : right.height) + 1;
+        updateSize(node);
+        onBuild(node, depth, maxDepth);
+        return node;
+    }
+
+    /**
+     * Hook for subclasses to set balancing metadata on a node produced by {@link #build}.
+     */
+    protected void onBuild(TreeNode<T> node, int depth, int maxDepth) {
+    }
 }
@@ -0,0 +1,76 @@
+/**
+ * Frozen tree of {@code int} keys in Eytzinger layout, produced by
+ * {@link BinarySearchTree#freezeInt(java.util.function.ToIntFunction)}.
+ * <p>
+ * Lookups return positions (0 if not found); read the key with {@link #get(int)}.
+ */
+public class FrozenIntTree extends AbstractFrozenTree {
+    private final int[] keys;
+
+    /**
+     * @param sorted distinct keys in ascending order
+     * @param counts occurrences of each key
+     */
+    FrozenIntTree(int[] sorted, int[] counts, int n) {
+        this(layout(n), sorted, counts);
+    }
+
+    private FrozenIntTree(int[] order, int[] sorted, int[] counts) {
+        super(order, counts);
+        keys = new int[n + 1];
+        for (int position = 1; position <= n; position++) {
+            keys[position] = sorted[order[position]];
+        }
+    }
+
+    public int get(int position) {
+        return keys[position];
+    }
+
+    /**
+     * @return position of the smallest key {@code >= key}, or 0 if none
+     */
+    public int ceiling(int key) {
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (keys[i] < key ? 1 : 0);
+        }
+        return lastLeft(i);
+    }
+
+    /**
+     * @return position of the largest key {@code <= key}, or 0 if none
+     */
+    public int floor(int key) {
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (keys[i] <= key ? 1 : 0);
+        }
+        return lastRight(i);
+    }
+
+    /**
+     * @return position of {@code key}, or 0 if not found
+     */
+    public int search(int key) {
+        int position = ceiling(key);
+        return position != 0 && keys[position] == key ? position : 0;
+    }
+
+    public boolean contains(int key) {
+        return search(key) != 0;
+    }
+
+    public int count(int key) {
+        return countAt(search(key));
+    }
+
+    /**
+     * Get the rank of a key (1-based).
+     *
+     * @return rank (0 if not found)
+     */
+    public int rank(int key) {
+        return rankAt(search(key));
+    }
+}
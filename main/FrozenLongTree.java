@@ -0,0 +1,76 @@
+/**
+ * Frozen tree of {@code long} keys in Eytzinger layout, produced by
+ * {@link BinarySearchTree#freezeLong(java.util.function.ToLongFunction)}.
+ * <p>
+ * Lookups return positions (0 if not found); read the key with {@link #get(int)}.
+ */
+public class FrozenLongTree extends AbstractFrozenTree {
+    private final long[] keys;
+
+    /**
+     * @param sorted distinct keys in ascending order
+     * @param counts occurrences of each key
+     */
+    FrozenLongTree(long[] sorted, int[] counts, int n) {
+        this(layout(n), sorted, counts);
+    }
+
+    private FrozenLongTree(int[] order, long[] sorted, int[] counts) {
+        super(order, counts);
+        keys = new long[n + 1];
+        for (int position = 1; position <= n; position++) {
+            keys[position] = sorted[order[position]];
+        }
+    }
+
+    public long get(int position) {
+        return keys[position];
+    }
+
+    /**
+     * @return position of the smallest key {@code >= key}, or 0 if none
+     */
+    public int ceiling(long key) {
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (keys[i] < key ? 1 : 0);
+        }
+        return lastLeft(i);
+    }
+
+    /**
+     * @return position of the largest key {@code <= key}, or 0 if none
+     */
+    public int floor(long key) {
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (keys[i] <= key ? 1 : 0);
+        }
+        return lastRight(i);
+    }
+
+    /**
+     * @return position of {@code key}, or 0 if not found
+     */
+    public int search(long key) {
+        int position = ceiling(key);
+        return position != 0 && keys[position] == key ? position : 0;
+    }
+
+    public boolean contains(long key) {
+        return search(key) != 0;
+    }
+
+    public int count(long key) {
+        return countAt(search(key));
+    }
+
+    /**
+     * Get the rank of a key (1-based).
+     *
+     * @return rank (0 if not found)
+     */
+    public int rank(long key) {
+        return rankAt(search(key));
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Comparator;
+
+/**
+ * Frozen tree of object keys in Eytzinger layout, produced by {@link BinarySearchTree#freeze()}.
+ * <p>
+ * Lookups return positions (0 if not found); read the key with {@link #get(int)}.
+ *
+ * @param <T> generic type, ordered by the comparator of the source tree
+ */
+public class FrozenTree<T> extends AbstractFrozenTree {
+    private final Object[] keys;
+    private final Comparator<T> comparator;
+
+    /**
+     * @param sorted distinct keys in ascending order
+     * @param counts occurrences of each key
+     */
+    FrozenTree(Object[] sorted, int[] counts, Comparator<T> comparator) {
+        this(layout(sorted.length), sorted, counts, comparator);
+    }
+
+    private FrozenTree(int[] order, Object[] sorted, int[] counts, Comparator<T> comparator) {
+        super(order, counts);
+        this.comparator = comparator;
+        keys = new Object[n + 1];
+        for (int position = 1; position <= n; position++) {
+            keys[position] = sorted[order[position]];
+        }
+    }
+
+    /**
+     * @return key at {@code position}, or null for position 0
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int position) {
+        return (T) keys[position];
+    }
+
+    /**
+     * @return position of the smallest key {@code >= data}, or 0 if none
+     */
+    public int ceiling(T data) {
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (comparator.compare(get(i), data) < 0 ? 1 : 0);
+        }
+        return lastLeft(i);
+    }
+
+    /**
+     * @return position of the largest key {@code <= data}, or 0 if none
+     */
+    public int floor(T data) {
+        int i = 1;
+        while (i <= n) {
+            i = 2 * i + (comparator.compare(get(i), data) <= 0 ? 1 : 0);
+        }
+        return lastRight(i);
+    }
+
+    /**
+     * @return position of {@code data}, or 0 if not found
+     */
+    public int search(T data) {
+        int position = ceiling(data);
+        return position != 0 && comparator.compare(get(position), data) == 0 ? position : 0;
+    }
+
+    public boolean contains(T data) {
+        return search(data) != 0;
+    }
+
+    public int count(T data) {
+        return countAt(search(data));
+    }
+
+    /**
+     * Get the rank of a value (1-based).
+     *
+     * @return rank (0 if not found)
+     */
+    public int rank(T data) {
+        return rankAt(search(data));
+    }
+}
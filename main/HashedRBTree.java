@@ -0,0 +1,200 @@
+import java.util.Comparator;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Red-Black Tree paired with an open-addressing hash index from values to their nodes.
+ * <p>
+ * Point operations ({@code search}, {@code contains}, {@code count}, and locating the target of
+ * {@code delete}) take O(1) expected time through the hash index, while ordered operations
+ * ({@code rank}, {@code select}, traversals) stay on the tree.
+ * <p>
+ * Values that compare equal must hash equally. By default values are hashed by their {@code long} key in
+ * key-extractor mode without a tie-breaker, and by {@link Object#hashCode()} under natural ordering
+ * (assumed consistent with equals). A custom comparator or tie-breaker requires a hash function
+ * (e.g. {@code Arrays::hashCode} for {@code byte[]} ordered by {@code Arrays::compareUnsigned}).
+ *
+ * @param <T> generic type (must be Comparable or use Comparator / key extractor)
+ */
+public class HashedRBTree<T> extends RBTree<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Hash of a value, or null when hashing by the long key
+    private final ToIntFunction<T> hasher;
+
+    // Linear probing table, at most half full; empty slots are null
+    private TreeNode<T>[] slots = newSlots(INITIAL_CAPACITY);
+    private int nodes;
+
+    /* ==================== Constructors ==================== */
+
+    public HashedRBTree() {
+        this(null, null, null, false);
+    }
+
+    public HashedRBTree(boolean allowDuplicates) {
+        this(null, null, null, allowDuplicates);
+    }
+
+    public HashedRBTree(Comparator<T> comparator, ToIntFunction<T> hasher) {
+        this(null, comparator, hasher, false);
+    }
+
+    public HashedRBTree(Comparator<T> comparator, ToIntFunction<T> hasher, boolean allowDuplicates) {
+        this(null, comparator, hasher, allowDuplicates);
+    }
+
+    public HashedRBTree(ToLongFunction<T> keyExtractor) {
+        this(keyExtractor, null, null, false);
+    }
+
+    public HashedRBTree(ToLongFunction<T> keyExtractor, boolean allowDuplicates) {
+        this(keyExtractor, null, null, allowDuplicates);
+    }
+
+    public HashedRBTree(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker, ToIntFunction<T> hasher) {
+        this(keyExtractor, tieBreaker, hasher, false);
+    }
+
+    /**
+     * @param hasher hash consistent with the ordering (values comparing equal hash equally), or
+     *               {@code null} for the default described above
+     * @throws IllegalArgumentException if {@code hasher} is {@code null} and {@code comparator} is not
+     */
+    public HashedRBTree(ToLongFunction<T> keyExtractor, Comparator<T> comparator, ToIntFunction<T> hasher,
+                        boolean allowDuplicates) {
+        super(keyExtractor, comparator, allowDuplicates);
+        if (hasher == null && comparator != null) {
+            throw new IllegalArgumentException("A hash function consistent with the comparator is required");
+        }
+        this.hasher = hasher == null && keyExtractor == null ? Object::hashCode : hasher;
+    }
+
+    @Override
+    protected BinarySearchTree<T> newTree() {
+        return new HashedRBTree<>(keyExtractor, comparator, hasher, allowDuplicates);
+    }
+
+    /* ==================== Hash Index ==================== */
+
+    @SuppressWarnings("unchecked")
+    private static <T> TreeNode<T>[] newSlots(int capacity) {
+        return (TreeNode<T>[]) new TreeNode<?>[capacity];
+    }
+
+    private int hash(T data, long key) {
+        long h = (hasher == null ? key : hasher.applyAsInt(data)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @return slot holding the node equal to {@code data}, or the empty slot where it would go
+     */
+    private int slot(T data, long key) {
+        int mask = slots.length - 1;
+        int i = hash(data, key) & mask;
+        while (slots[i] != null && compare(data, key, slots[i]) != 0) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void index(TreeNode<T> node) {
+        if ((nodes + 1) * 2 > slots.length) resize(slots.length * 2);
+        slots[slot(node.data, node.key)] = node;
+        nodes++;
+    }
+
+    private void unindex(TreeNode<T> node) {
+        int mask = slots.length - 1;
+        int i = slot(node.data, node.key);
+        if (slots[i] == null) return;
+        slots[i] = null;
+        nodes--;
+        // Backward-shift deletion: move later entries of the probe run into the hole when their home
+        // slot does not lie cyclically in (hole, current]
+        for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+            int home = hash(slots[j].data, slots[j].key) & mask;
+            if (i <= j ? home <= i || home > j : home <= i && home > j) {
+                slots[i] = slots[j];
+                slots[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        TreeNode<T>[] old = slots;
+        slots = newSlots(capacity);
+        for (TreeNode<T> node : old) {
+            if (node != null) slots[slot(node.data, node.key)] = node;
+        }
+    }
+
+    private void reindex(TreeNode<T> node) {
+        if (isNil(node)) return;
+        reindex(node.left);
+        index(node);
+        reindex(node.right);
+    }
+
+    /**
+     * @return number of slots in the hash index (each one reference wide)
+     */
+    public int indexCapacity() {
+        return slots.length;
+    }
+
+    @Override
+    protected void onInsertNode(TreeNode<T> node) {
+        index(node);
+    }
+
+    @Override
+    protected void onDeleteNode(TreeNode<T> z) {
+        unindex(z);
+    }
+
+    /* ==================== Searching ==================== */
+
+    @Override
+    public TreeNode<T> search(T data) {
+        TreeNode<T> node = slots[slot(data, key(data))];
+        return node == null ? nil() : node;
+    }
+
+    /* ==================== Parallel ==================== */
+
+    @Override
+    public BinarySearchTree<T> parallelFilter(Predicate<? super T> predicate, int threshold) {
+        // Balanced builds create nodes concurrently, so index the result once it is complete
+        HashedRBTree<T> tree = (HashedRBTree<T>) super.parallelFilter(predicate, threshold);
+        tree.reindex(tree.root);
+        return tree;
+    }
+
+    /* ==================== Validation ==================== */
+
+    @Override
+    public void checkInvariants() {
+        super.checkInvariants();
+        if (nodes != countNodes(root)) {
+            throw new IllegalStateException("Hash index holds " + nodes + " nodes");
+        }
+        checkIndexed(root);
+    }
+
+    private int countNodes(TreeNode<T> node) {
+        return isNil(node) ? 0 : countNodes(node.left) + countNodes(node.right) + 1;
+    }
+
+    private void checkIndexed(TreeNode<T> node) {
+        if (isNil(node)) return;
+        if (slots[slot(node.data, node.key)] != node) {
+            throw new IllegalStateException("Node not indexed: " + node.data);
+        }
+        checkIndexed(node.left);
+        checkIndexed(node.right);
+    }
+}
@@ -0,0 +1,499 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap AVL order-statistic tree for fixed-width binary keys.
+ * <p>
+ * Nodes and keys live in direct {@link ByteBuffer} chunks instead of {@code TreeNode<byte[]>} objects,
+ * so the garbage collector sees a handful of buffers regardless of tree size. Nodes are addressed by
+ * int handles (handle 0 is the all-zero NIL node), child links are handles, and keys are compared as
+ * unsigned lexicographic byte strings, 8 bytes at a time.
+ * <p>
+ * Memory is released by {@link #close()}; the tree is unusable afterwards.
+ * <p>
+ * Node layout: {@code left:int | right:int | height:int | count:int | size:int | pad:int | key:long[words]}
+ */
+public class OffHeapAVLTree implements AutoCloseable {
+    private static final int LEFT = 0, RIGHT = 4, HEIGHT = 8, COUNT = 12, SIZE = 16, KEY = 24;
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int NIL = 0;
+    /**
+     * Widest key whose chunk of {@code 2^CHUNK_BITS} nodes still fits in one {@link ByteBuffer}.
+     */
+    public static final int MAX_KEY_WIDTH = ((Integer.MAX_VALUE >> CHUNK_BITS) - KEY) / 8 * 8;
+
+    private final int keyWidth;
+    private final int words;
+    private final int nodeBytes;
+    private final boolean allowDuplicates;
+
+    // Grown geometrically; only the first chunkCount entries are allocated
+    private ByteBuffer[] chunks;
+    private int chunkCount = 1;
+    private int root = NIL;
+    // Next never-used handle, and head of the free list (linked through LEFT)
+    private int nextNode = 1, freeList = NIL;
+
+    /* ==================== Constructors ==================== */
+
+    public OffHeapAVLTree(int keyWidth) {
+        this(keyWidth, false);
+    }
+
+    public OffHeapAVLTree(int keyWidth, boolean allowDuplicates) {
+        if (keyWidth <= 0) throw new IllegalArgumentException("Key width must be positive: " + keyWidth);
+        if (keyWidth > MAX_KEY_WIDTH) {
+            throw new IllegalArgumentException("Key width " + keyWidth + " exceeds " + MAX_KEY_WIDTH);
+        }
+        this.keyWidth = keyWidth;
+        this.words = (keyWidth + 7) / 8;
+        this.nodeBytes = KEY + words * 8;
+        this.allowDuplicates = allowDuplicates;
+        // Handle 0 of the first chunk is NIL and stays all-zero
+        this.chunks = new ByteBuffer[]{ByteBuffer.allocateDirect(nodeBytes << CHUNK_BITS)};
+    }
+
+    /* ==================== Memory ==================== */
+
+    private ByteBuffer chunk(int node) {
+        return chunks[node >>> CHUNK_BITS];
+    }
+
+    private int offset(int node) {
+        return (node & CHUNK_MASK) * nodeBytes;
+    }
+
+    private int getInt(int node, int field) {
+        return chunk(node).getInt(offset(node) + field);
+    }
+
+    private void putInt(int node, int field, int value) {
+        chunk(node).putInt(offset(node) + field, value);
+    }
+
+    private int left(int node) {
+        return getInt(node, LEFT);
+    }
+
+    private int right(int node) {
+        return getInt(node, RIGHT);
+    }
+
+    private int height(int node) {
+        return getInt(node, HEIGHT);
+    }
+
+    private int count(int node) {
+        return getInt(node, COUNT);
+    }
+
+    private int size(int node) {
+        return getInt(node, SIZE);
+    }
+
+    private int allocate(long[] key) {
+        ensureOpen();
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left(node);
+        } else {
+            if (nextNode == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Handle space exhausted: " + Integer.MAX_VALUE + " nodes");
+            }
+            node = nextNode++;
+            if (node >>> CHUNK_BITS == chunkCount) {
+                if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+                chunks[chunkCount++] = ByteBuffer.allocateDirect(nodeBytes << CHUNK_BITS);
+            }
+        }
+        putInt(node, LEFT, NIL);
+        putInt(node, RIGHT, NIL);
+        putInt(node, HEIGHT, 1);
+        putInt(node, COUNT, 1);
+        putInt(node, SIZE, 1);
+        putKey(node, key);
+        return node;
+    }
+
+    private void free(int node) {
+        putInt(node, LEFT, freeList);
+        freeList = node;
+    }
+
+    private void ensureOpen() {
+        if (chunks == null) throw new IllegalStateException("Tree is closed");
+    }
+
+    /**
+     * Release all off-heap memory. Buffers are freed eagerly where the JDK allows it, otherwise when
+     * they are collected.
+     */
+    @Override
+    public void close() {
+        if (chunks == null) return;
+        for (int i = 0; i < chunkCount; i++) Cleaner.free(chunks[i]);
+        chunks = null;
+        root = NIL;
+    }
+
+    /**
+     * @return off-heap bytes reserved for nodes
+     */
+    public long reservedBytes() {
+        ensureOpen();
+        return (long) chunkCount * (nodeBytes << CHUNK_BITS);
+    }
+
+    /* ==================== Keys ==================== */
+
+    /**
+     * Pack a key into big-endian words, zero-padded, so that unsigned word order is byte order.
+     */
+    private long[] words(byte[] key) {
+        if (key.length != keyWidth) {
+            throw new IllegalArgumentException("Expected " + keyWidth + "-byte key, got " + key.length);
+        }
+        long[] packed = new long[words];
+        for (int i = 0; i < keyWidth; i++) {
+            packed[i >>> 3] |= (key[i] & 0xFFL) << (56 - ((i & 7) << 3));
+        }
+        return packed;
+    }
+
+    private byte[] bytes(int node) {
+        byte[] key = new byte[keyWidth];
+        ByteBuffer buffer = chunk(node);
+        int base = offset(node) + KEY;
+        for (int i = 0; i < keyWidth; i++) {
+            key[i] = (byte) (buffer.getLong(base + ((i >>> 3) << 3)) >>> (56 - ((i & 7) << 3)));
+        }
+        return key;
+    }
+
+    private void putKey(int node, long[] key) {
+        ByteBuffer buffer = chunk(node);
+        int base = offset(node) + KEY;
+        for (int i = 0; i < words; i++) buffer.putLong(base + (i << 3), key[i]);
+    }
+
+    private void copyKey(int from, int to) {
+        ByteBuffer source = chunk(from), target = chunk(to);
+        int fromBase = offset(from) + KEY, toBase = offset(to) + KEY;
+        for (int i = 0; i < words; i++) target.putLong(toBase + (i << 3), source.getLong(fromBase + (i << 3)));
+    }
+
+    private int compare(long[] key, int node) {
+        ByteBuffer buffer = chunk(node);
+        int base = offset(node) + KEY;
+        for (int i = 0; i < words; i++) {
+            int cmp = Long.compareUnsigned(key[i], buffer.getLong(base + (i << 3)));
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    /* ==================== Utilities ==================== */
+
+    private void update(int node) {
+        int left = left(node), right = right(node);
+        putInt(node, HEIGHT, Math.max(height(left), height(right)) + 1);
+        putInt(node, SIZE, count(node) + size(left) + size(right));
+    }
+
+    public int size() {
+        ensureOpen();
+        return size(root);
+    }
+
+    /* ==================== Rotations & Balancing ==================== */
+
+    private int rotateLeft(int node) {
+        int successor = right(node);
+        putInt(node, RIGHT, left(successor));
+        putInt(successor, LEFT, node);
+        update(node);
+        update(successor);
+        return successor;
+    }
+
+    private int rotateRight(int node) {
+        int successor = left(node);
+        putInt(node, LEFT, right(successor));
+        putInt(successor, RIGHT, node);
+        update(node);
+        update(successor);
+        return successor;
+    }
+
+    private int balanceFactor(int node) {
+        return height(left(node)) - height(right(node));
+    }
+
+    private int fixBalance(int node) {
+        if (node == NIL) return node;
+        update(node);
+        int bf = balanceFactor(node);
+        if (bf > 1) {
+            if (balanceFactor(left(node)) < 0) putInt(node, LEFT, rotateLeft(left(node)));
+            node = rotateRight(node);
+        } else if (bf < -1) {
+            if (balanceFactor(right(node)) > 0) putInt(node, RIGHT, rotateRight(right(node)));
+            node = rotateLeft(node);
+        }
+        return node;
+    }
+
+    /* ==================== Insertion ==================== */
+
+    public void insert(byte[] key) {
+        ensureOpen();
+        root = insert(root, words(key));
+    }
+
+    private int insert(int node, long[] key) {
+        if (node == NIL) return allocate(key);
+        int cmp = compare(key, node);
+        if (cmp < 0) {
+            putInt(node, LEFT, insert(left(node), key));
+        } else if (cmp > 0) {
+            putInt(node, RIGHT, insert(right(node), key));
+        } else if (allowDuplicates) {
+            putInt(node, COUNT, count(node) + 1);
+        }
+        return fixBalance(node);
+    }
+
+    /* ==================== Searching ==================== */
+
+    /**
+     * @return handle of the node holding {@code key}, or 0 if not found; read it with {@link #keyAt(int)}
+     * and {@link #countAt(int)} until the next modification of the tree
+     */
+    public int search(byte[] key) {
+        ensureOpen();
+        long[] packed = words(key);
+        int node = root;
+        while (node != NIL) {
+            int cmp = compare(packed, node);
+            if (cmp == 0) return node;
+            node = cmp < 0 ? left(node) : right(node);
+        }
+        return NIL;
+    }
+
+    public boolean contains(byte[] key) {
+        return search(key) != NIL;
+    }
+
+    /**
+     * @return number of occurrences of {@code key} (0 if not found)
+     */
+    public int count(byte[] key) {
+        return count(search(key));
+    }
+
+    /**
+     * @return a copy of the key stored at {@code handle}, or null for handle 0
+     */
+    public byte[] keyAt(int handle) {
+        ensureOpen();
+        checkHandle(handle);
+        return handle == NIL ? null : bytes(handle);
+    }
+
+    /**
+     * @return number of occurrences stored at {@code handle} (0 for handle 0)
+     */
+    public int countAt(int handle) {
+        ensureOpen();
+        checkHandle(handle);
+        return count(handle);
+    }
+
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= nextNode) {
+            throw new IllegalArgumentException("Invalid handle: " + handle);
+        }
+    }
+
+    /* ==================== Deletion ==================== */
+
+    public void delete(byte[] key) {
+        ensureOpen();
+        root = delete(root, words(key));
+    }
+
+    private int delete(int node, long[] key) {
+        if (node == NIL) return node;
+        int cmp = compare(key, node);
+        if (cmp < 0) {
+            putInt(node, LEFT, delete(left(node), key));
+        } else if (cmp > 0) {
+            putInt(node, RIGHT, delete(right(node), key));
+        } else if (count(node) > 1) {
+            putInt(node, COUNT, count(node) - 1);
+        } else if (left(node) == NIL || right(node) == NIL) {
+            int child = left(node) == NIL ? right(node) : left(node);
+            free(node);
+            return child;
+        } else {
+            putInt(node, RIGHT, deleteMin(right(node), node));
+        }
+        return fixBalance(node);
+    }
+
+    /**
+     * Unlink the minimum node of a subtree, moving its key and count into {@code target}.
+     */
+    private int deleteMin(int node, int target) {
+        if (left(node) == NIL) {
+            copyKey(node, target);
+            putInt(target, COUNT, count(node));
+            int right = right(node);
+            free(node);
+            return right;
+        }
+        putInt(node, LEFT, deleteMin(left(node), target));
+        return fixBalance(node);
+    }
+
+    /* ==================== Rank & K-th ==================== */
+
+    /**
+     * Get the rank of a key (1-based).
+     *
+     * @return rank (0 if not found)
+     */
+    public int rank(byte[] key) {
+        ensureOpen();
+        long[] packed = words(key);
+        int node = root, rank = 0;
+        while (node != NIL) {
+            int cmp = compare(packed, node);
+            if (cmp == 0) return rank + size(left(node)) + 1;
+            if (cmp < 0) {
+                node = left(node);
+            } else {
+                rank += size(left(node)) + count(node);
+                node = right(node);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the k-th smallest key (1-based).
+     *
+     * @return a copy of the key, or null if k is invalid
+     */
+    public byte[] select(int k) {
+        ensureOpen();
+        if (k <= 0 || k > size(root)) return null;
+        int node = root;
+        while (true) {
+            int leftSize = size(left(node));
+            if (k <= leftSize) {
+                node = left(node);
+            } else if (k <= leftSize + count(node)) {
+                return bytes(node);
+            } else {
+                k -= leftSize + count(node);
+                node = right(node);
+            }
+        }
+    }
+
+    /* ==================== Traversal & Validation ==================== */
+
+    public List<byte[]> inOrderTraversal() {
+        ensureOpen();
+        List<byte[]> list = new ArrayList<>();
+        inOrderTraversal(root, list);
+        return list;
+    }
+
+    private void inOrderTraversal(int node, List<byte[]> list) {
+        if (node == NIL) return;
+        inOrderTraversal(left(node), list);
+        for (int i = 0; i < count(node); i++) {
+            list.add(bytes(node));
+        }
+        inOrderTraversal(right(node), list);
+    }
+
+    public int height() {
+        ensureOpen();
+        return height(root);
+    }
+
+    /**
+     * Verify ordering, size, height and balance of the whole tree in O(n).
+     *
+     * @throws IllegalStateException describing the first violation found
+     */
+    public void checkInvariants() {
+        ensureOpen();
+        checkInvariants(root, null, null);
+    }
+
+    private void checkInvariants(int node, long[] lower, long[] upper) {
+        if (node == NIL) return;
+        long[] key = words(bytes(node));
+        if (lower != null && compare(lower, node) >= 0 || upper != null && compare(upper, node) <= 0) {
+            throw new IllegalStateException("Order violated at node " + node);
+        }
+        int left = left(node), right = right(node);
+        checkInvariants(left, lower, key);
+        checkInvariants(right, key, upper);
+        if (count(node) < 1 || count(node) > 1 && !allowDuplicates) {
+            throw new IllegalStateException("Invalid count at node " + node);
+        }
+        if (size(node) != count(node) + size(left) + size(right)) {
+            throw new IllegalStateException("Size violated at node " + node);
+        }
+        if (height(node) != Math.max(height(left), height(right)) + 1 || Math.abs(balanceFactor(node)) > 1) {
+            throw new IllegalStateException("Balance violated at node " + node);
+        }
+    }
+
+    /* ==================== Cleaner ==================== */
+
+    /**
+     * Frees direct buffers eagerly through {@code sun.misc.Unsafe.invokeCleaner} when available.
+     */
+    private static class Cleaner {
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> type = Class.forName("sun.misc.Unsafe");
+                Field field = type.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+                invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Fall back to freeing buffers when they are collected
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        static void free(ByteBuffer buffer) {
+            if (INVOKE_CLEANER == null) return;
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException e) {
+                // Leave it to the collector
+            }
+        }
+    }
+}
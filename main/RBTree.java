@@ -1,4 +1,5 @@
 import java.util.Comparator;
+import java.util.function.ToLongFunction;
 
 /**
  * Red-Black Tree
@@ -12,10 +13,14 @@ import java.util.Comparator;
  * <li>A red node does not have a red child.</li>
  * <li>Every path from a given node to any of its leaf nodes goes through the same number of black nodes.</li>
  *
- * @param <T> generic type (must be Comparable or use Comparator)
+ * @param <T> generic type (must be Comparable or use Comparator / key extractor)
  */
 public class RBTree<T> extends BinarySearchTree<T> {
     private final TreeNode<T> NIL;
+    /**
+     * Number of nodes created or removed so far; lets a {@link Cursor} detect changes made behind its back.
+     */
+    private int modCount;
 
     /* ==================== Constructors ==================== */
 
@@ -42,6 +47,30 @@ public class RBTree<T> extends BinarySearchTree<T> {
         initRoot();
     }
 
+    public RBTree(ToLongFunction<T> keyExtractor) {
+        super(keyExtractor);
+        NIL = createNIL();
+        initRoot();
+    }
+
+    public RBTree(ToLongFunction<T> keyExtractor, boolean allowDuplicates) {
+        super(keyExtractor, allowDuplicates);
+        NIL = createNIL();
+        initRoot();
+    }
+
+    public RBTree(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker) {
+        super(keyExtractor, tieBreaker);
+        NIL = createNIL();
+        initRoot();
+    }
+
+    public RBTree(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker, boolean allowDuplicates) {
+        super(keyExtractor, tieBreaker, allowDuplicates);
+        NIL = createNIL();
+        initRoot();
+    }
+
     /* ==================== Initialization ==================== */
 
     private TreeNode<T> createNIL() {
@@ -63,8 +92,28 @@ public class RBTree<T> extends BinarySearchTree<T> {
         return node == NIL;
     }
 
-    private TreeNode<T> createNode(T data) {
-        TreeNode<T> node = new TreeNode<>(data);
+    @Override
+    protected TreeNode<T> nil() {
+        return NIL;
+    }
+
+    @Override
+    protected BinarySearchTree<T> newTree() {
+        return new RBTree<>(keyExtractor, comparator, allowDuplicates);
+    }
+
+    /**
+     * Color a node of a balanced build: only the (partially filled) deepest level is red, which keeps
+     * the black height equal on every path.
+     */
+    @Override
+    protected void onBuild(TreeNode<T> node, int depth, int maxDepth) {
+        node.color = depth == maxDepth && depth > 0 ? NodeColor.RED : NodeColor.BLACK;
+    }
+
+    @Override
+    protected TreeNode<T> createNode(T data, long key) {
+        TreeNode<T> node = super.createNode(data, key);
         node.left = node.right = node.parent = NIL;
         return node;
     }
@@ -129,15 +178,50 @@ public class RBTree<T> extends BinarySearchTree<T> {
         }
     }
 
+    /**
+     * @return in-order successor of {@code node}, or NIL if it is the maximum
+     */
+    private TreeNode<T> successor(TreeNode<T> node) {
+        if (!isNil(node.right)) return findMin(node.right);
+        TreeNode<T> parent = node.parent;
+        while (!isNil(parent) && node == parent.right) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return parent;
+    }
+
+    /**
+     * @return in-order predecessor of {@code node}, or NIL if it is the minimum
+     */
+    private TreeNode<T> predecessor(TreeNode<T> node) {
+        if (!isNil(node.left)) return findMax(node.left);
+        TreeNode<T> parent = node.parent;
+        while (!isNil(parent) && node == parent.left) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return parent;
+    }
+
     /* ==================== Insertion ==================== */
 
     @Override
     public void insert(T data) {
-        TreeNode<T> parent = NIL;
-        TreeNode<T> current = root;
+        insertFrom(root, data, key(data));
+    }
+
+    /**
+     * Insert by descending from {@code start}, whose subtree must contain the position of {@code data}.
+     *
+     * @return the node holding {@code data}
+     */
+    private TreeNode<T> insertFrom(TreeNode<T> start, T data, long key) {
+        TreeNode<T> parent = isNil(start) ? NIL : start.parent;
+        TreeNode<T> current = start;
         while (!isNil(current)) {
             parent = current;
-            int cmp = compare(data, current.data);
+            int cmp = compare(data, key, current);
             if (cmp < 0) {
                 current = current.left;
             } else if (cmp > 0) {
@@ -147,22 +231,31 @@ public class RBTree<T> extends BinarySearchTree<T> {
                     current.count++;
                     updateSizeUp(current);
                 }
-                return;
+                return current;
             }
         }
 
-        TreeNode<T> node = createNode(data);
+        TreeNode<T> node = createNode(data, key);
         node.parent = parent;
         // Attach node to parent
         if (isNil(parent)) {
             root = node;
-        } else if (compare(data, parent.data) < 0) {
+        } else if (compare(data, key, parent) < 0) {
             parent.left = node;
         } else {
             parent.right = node;
         }
+        modCount++;
+        onInsertNode(node);
         updateSizeUp(node);
         insertFixup(node);
+        return node;
+    }
+
+    /**
+     * Hook called after a new node is linked into the tree (not for duplicate count increments).
+     */
+    protected void onInsertNode(TreeNode<T> node) {
     }
 
     private void insertFixup(TreeNode<T> node) {
@@ -246,13 +339,25 @@ public class RBTree<T> extends BinarySearchTree<T> {
         // Target node
         TreeNode<T> z = search(data);
         if (isNil(z)) return;
+        delete(z);
+    }
 
+    /**
+     * Hook called before node {@code z} is unlinked from the tree. Nodes keep their identity during
+     * deletion: other nodes are relinked, never have their data moved.
+     */
+    protected void onDeleteNode(TreeNode<T> z) {
+    }
+
+    private void delete(TreeNode<T> z) {
         if (z.count > 1) {
             z.count--;
             updateSizeUp(z);
             return;
         }
 
+        modCount++;
+        onDeleteNode(z);
         // BaseNode actually removed (or moved)
         TreeNode<T> y = z;
         // Track nodeColor of original removed node
@@ -278,7 +383,7 @@ public class RBTree<T> extends BinarySearchTree<T> {
                 updateSize(y);
             } else {
                 transplant(y, y.right);
-                updateSize(x.parent);
+                updateSizeUp(x.parent);
                 // Attach z's right subtree to y
                 y.right = z.right;
                 y.right.parent = y;
@@ -378,4 +483,235 @@ public class RBTree<T> extends BinarySearchTree<T> {
         }
         node.color = NodeColor.BLACK;
     }
+
+    /* ==================== Validation ==================== */
+
+    @Override
+    public void checkInvariants() {
+        super.checkInvariants();
+        if (root.color != NodeColor.BLACK) {
+            throw new IllegalStateException("Root is red");
+        }
+        blackHeight(root);
+    }
+
+    @Override
+    protected void checkNode(TreeNode<T> node) {
+        if (!isNil(node.left) && node.left.parent != node || !isNil(node.right) && node.right.parent != node) {
+            throw new IllegalStateException("Parent link violated at " + node.data);
+        }
+        if (node.color == NodeColor.RED && (node.left.color == NodeColor.RED || node.right.color == NodeColor.RED)) {
+            throw new IllegalStateException("Red node with red child at " + node.data);
+        }
+    }
+
+    private int blackHeight(TreeNode<T> node) {
+        if (isNil(node)) return 1;
+        int left = blackHeight(node.left);
+        if (left != blackHeight(node.right)) {
+            throw new IllegalStateException("Black height violated at " + node.data);
+        }
+        return left + (node.color == NodeColor.BLACK ? 1 : 0);
+    }
+
+    /* ==================== Cursor ==================== */
+
+    /**
+     * @return a cursor positioned at the minimum node (invalid if the tree is empty)
+     */
+    public Cursor cursor() {
+        return new Cursor(findMin(root));
+    }
+
+    /**
+     * Climb from {@code node} to the lowest ancestor whose subtree must contain the position of {@code data}.
+     */
+    private TreeNode<T> climb(TreeNode<T> node, T data, long key) {
+        if (isNil(node)) return root;
+        int cmp = compare(data, key, node);
+        if (cmp == 0) return node;
+        while (!isNil(node.parent)) {
+            TreeNode<T> parent = node.parent;
+            if (cmp > 0 ? node == parent.left && compare(data, key, parent) <= 0
+                    : node == parent.right && compare(data, key, parent) >= 0) {
+                return parent;
+            }
+            node = parent;
+        }
+        return node;
+    }
+
+    /**
+     * Finger into the tree: a position at a node from which navigation, search and updates start,
+     * instead of descending from the root.
+     * <p>
+     * The cursor caches the in-order neighbors of its node, so a key falling between them (e.g. sorted
+     * or nearly sorted ingest) is placed without any search above the cursor. Otherwise it climbs
+     * parent pointers only as far as needed. If the tree is modified through another path, the cursor
+     * re-seeks its key from the root on next use.
+     * <p>
+     * Only the search is saved: every new node still updates subtree sizes up to the root and may
+     * rebalance, so an insert costs O(log n) regardless. For random ingest the climb adds work over
+     * a plain {@link #insert}; use the cursor only when keys arrive close to the previous one.
+     */
+    public class Cursor {
+        private TreeNode<T> node;
+        // Cached neighbors of node (NIL if none, null if unknown)
+        private TreeNode<T> pred, succ;
+        private int expectedModCount;
+
+        private Cursor(TreeNode<T> node) {
+            this.node = node;
+            this.expectedModCount = modCount;
+        }
+
+        private void revalidate() {
+            if (expectedModCount == modCount) return;
+            expectedModCount = modCount;
+            pred = succ = null;
+            if (!isNil(node)) node = ceiling(root, node.data, node.key);
+        }
+
+        private TreeNode<T> pred() {
+            if (pred == null) pred = predecessor(node);
+            return pred;
+        }
+
+        private TreeNode<T> succ() {
+            if (succ == null) succ = successor(node);
+            return succ;
+        }
+
+        private TreeNode<T> ceiling(TreeNode<T> start, T data, long key) {
+            TreeNode<T> ceiling = NIL;
+            TreeNode<T> current = start;
+            while (!isNil(current)) {
+                int cmp = compare(data, key, current);
+                if (cmp == 0) return current;
+                if (cmp < 0) {
+                    ceiling = current;
+                    current = current.left;
+                } else {
+                    current = current.right;
+                }
+            }
+            return ceiling;
+        }
+
+        private void moveTo(TreeNode<T> target) {
+            if (target != node) {
+                node = target;
+                pred = succ = null;
+            }
+        }
+
+        public boolean isValid() {
+            revalidate();
+            return !isNil(node);
+        }
+
+        /**
+         * @return value at the cursor, or null if the cursor is invalid
+         */
+        public T get() {
+            revalidate();
+            return node.data;
+        }
+
+        /**
+         * Move to the in-order successor node.
+         *
+         * @return false if the cursor moved past the maximum (or was already invalid)
+         */
+        public boolean next() {
+            revalidate();
+            if (isNil(node)) return false;
+            TreeNode<T> previous = node;
+            node = succ();
+            pred = previous;
+            succ = null;
+            return !isNil(node);
+        }
+
+        /**
+         * Move to the in-order predecessor node.
+         *
+         * @return false if the cursor moved before the minimum (or was already invalid)
+         */
+        public boolean prev() {
+            revalidate();
+            if (isNil(node)) return false;
+            TreeNode<T> previous = node;
+            node = pred();
+            succ = previous;
+            pred = null;
+            return !isNil(node);
+        }
+
+        /**
+         * Move to the smallest node not less than {@code data}, starting from the current position.
+         *
+         * @return true if a node equal to {@code data} was found
+         */
+        public boolean seek(T data) {
+            revalidate();
+            long key = key(data);
+            moveTo(ceiling(climb(node, data, key), data, key));
+            return !isNil(node) && compare(data, key, node) == 0;
+        }
+
+        /**
+         * Insert {@code data} starting from the current position, then move to its node.
+         */
+        public void insertNear(T data) {
+            revalidate();
+            long key = key(data);
+            if (isNil(node)) {
+                moveTo(insertFrom(root, data, key));
+                expectedModCount = modCount;
+                return;
+            }
+            int cmp = compare(data, key, node);
+            if (cmp == 0) {
+                insertFrom(node, data, key);
+                return;
+            }
+            // Fast path: data falls between node and its cached neighbor, so its position is under node
+            TreeNode<T> bound = cmp > 0 ? succ() : pred();
+            if (isNil(bound) || (cmp > 0 ? compare(data, key, bound) < 0 : compare(data, key, bound) > 0)) {
+                boolean leaf = isNil(cmp > 0 ? node.right : node.left);
+                TreeNode<T> previous = node;
+                TreeNode<T> inserted = insertFrom(node, data, key);
+                moveTo(inserted);
+                if (leaf) {
+                    // Attached directly as a child of previous, so its neighbors are known
+                    pred = cmp > 0 ? previous : bound;
+                    succ = cmp > 0 ? bound : previous;
+                }
+            } else {
+                moveTo(insertFrom(climb(node, data, key), data, key));
+            }
+            expectedModCount = modCount;
+        }
+
+        /**
+         * Delete one occurrence of the value at the cursor. When its node is removed the cursor moves
+         * to the successor node.
+         */
+        public void deleteAtCursor() {
+            revalidate();
+            if (isNil(node)) return;
+            if (node.count > 1) {
+                delete(node);
+                return;
+            }
+            TreeNode<T> next = succ();
+            TreeNode<T> previous = pred;
+            delete(node);
+            node = next;
+            pred = previous;
+            succ = null;
+            expectedModCount = modCount;
+        }
+    }
 }
@@ -0,0 +1,285 @@
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+/**
+ * Treap: a randomized Binary Search Tree.
+ * <p>
+ * Properties:
+ * <li>Every node has a random priority, and no child has a higher priority than its parent.</li>
+ * <p>
+ * The expected height is O(log n), which also makes split and merge expected O(log n). This supports
+ * moving whole key or rank ranges between trees without rebuilding them.
+ *
+ * @param <T> generic type (must be Comparable or use Comparator / key extractor)
+ */
+public class Treap<T> extends BinarySearchTree<T> {
+    /* ==================== Constructors ==================== */
+
+    public Treap() {
+    }
+
+    public Treap(boolean allowDuplicates) {
+        super(allowDuplicates);
+    }
+
+    public Treap(Comparator<T> comparator) {
+        super(comparator);
+    }
+
+    public Treap(Comparator<T> comparator, boolean allowDuplicates) {
+        super(comparator, allowDuplicates);
+    }
+
+    public Treap(ToLongFunction<T> keyExtractor) {
+        super(keyExtractor);
+    }
+
+    public Treap(ToLongFunction<T> keyExtractor, boolean allowDuplicates) {
+        super(keyExtractor, allowDuplicates);
+    }
+
+    public Treap(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker) {
+        super(keyExtractor, tieBreaker);
+    }
+
+    public Treap(ToLongFunction<T> keyExtractor, Comparator<T> tieBreaker, boolean allowDuplicates) {
+        super(keyExtractor, tieBreaker, allowDuplicates);
+    }
+
+    /* ==================== Utilities ==================== */
+
+    @Override
+    protected BinarySearchTree<T> newTree() {
+        return new Treap<>(keyExtractor, comparator, allowDuplicates);
+    }
+
+    private Treap<T> wrap(TreeNode<T> node) {
+        Treap<T> tree = (Treap<T>) newTree();
+        tree.root = node;
+        return tree;
+    }
+
+    @Override
+    protected TreeNode<T> createNode(T data, long key) {
+        TreeNode<T> node = super.createNode(data, key);
+        node.priority = ThreadLocalRandom.current().nextInt();
+        return node;
+    }
+
+    /**
+     * Balanced builds create nodes bottom-up, so lift each node's priority to the maximum of its subtree
+     * to keep the heap property.
+     */
+    @Override
+    protected void onBuild(TreeNode<T> node, int depth, int maxDepth) {
+        if (!isNil(node.left)) node.priority = Math.max(node.priority, node.left.priority);
+        if (!isNil(node.right)) node.priority = Math.max(node.priority, node.right.priority);
+    }
+
+    /* ==================== Rotations ==================== */
+
+    private TreeNode<T> rotateLeft(TreeNode<T> node) {
+        TreeNode<T> successor = node.right;
+        node.right = successor.left;
+        successor.left = node;
+        updateSize(node);
+        updateSize(successor);
+        return successor;
+    }
+
+    private TreeNode<T> rotateRight(TreeNode<T> node) {
+        TreeNode<T> successor = node.left;
+        node.left = successor.right;
+        successor.right = node;
+        updateSize(node);
+        updateSize(successor);
+        return successor;
+    }
+
+    /* ==================== Insertion & Deletion ==================== */
+
+    @Override
+    protected TreeNode<T> insert(TreeNode<T> node, T data, long key) {
+        node = super.insert(node, data, key);
+        if (!isNil(node.left) && node.left.priority > node.priority) {
+            node = rotateRight(node);
+        } else if (!isNil(node.right) && node.right.priority > node.priority) {
+            node = rotateLeft(node);
+        }
+        return node;
+    }
+
+    @Override
+    protected TreeNode<T> delete(TreeNode<T> node, T data, long key) {
+        if (isNil(node)) return node;
+        int cmp = compare(data, key, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, data, key);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, data, key);
+        } else if (node.count > 1) {
+            node.count--;
+        } else {
+            return merge(node.left, node.right);
+        }
+        updateSize(node);
+        return node;
+    }
+
+    /* ==================== Split & Merge ==================== */
+
+    /**
+     * Merge two subtrees where every value of {@code left} is smaller than every value of {@code right}.
+     */
+    private TreeNode<T> merge(TreeNode<T> left, TreeNode<T> right) {
+        if (isNil(left)) return right;
+        if (isNil(right)) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            updateSize(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        updateSize(right);
+        return right;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TreeNode<T>[] pair(TreeNode<T> left, TreeNode<T> right) {
+        return (TreeNode<T>[]) new TreeNode<?>[]{left, right};
+    }
+
+    /**
+     * Split a subtree into (values less than {@code data}, values not less than {@code data}).
+     */
+    private TreeNode<T>[] splitByKey(TreeNode<T> node, T data, long key) {
+        if (isNil(node)) return pair(node, node);
+        if (compare(data, key, node) <= 0) {
+            TreeNode<T>[] parts = splitByKey(node.left, data, key);
+            node.left = parts[1];
+            updateSize(node);
+            parts[1] = node;
+            return parts;
+        }
+        TreeNode<T>[] parts = splitByKey(node.right, data, key);
+        node.right = parts[0];
+        updateSize(node);
+        parts[0] = node;
+        return parts;
+    }
+
+    /**
+     * Split a subtree into (first {@code k} values, remaining values). A node whose duplicates straddle
+     * the split is divided into two nodes with the same priority.
+     */
+    private TreeNode<T>[] splitByRank(TreeNode<T> node, int k) {
+        if (isNil(node)) return pair(node, node);
+        int leftSize = size(node.left);
+        if (k <= leftSize) {
+            TreeNode<T>[] parts = splitByRank(node.left, k);
+            node.left = parts[1];
+            updateSize(node);
+            parts[1] = node;
+            return parts;
+        }
+        if (k >= leftSize + node.count) {
+            TreeNode<T>[] parts = splitByRank(node.right, k - leftSize - node.count);
+            node.right = parts[0];
+            updateSize(node);
+            parts[0] = node;
+            return parts;
+        }
+        TreeNode<T> rest = super.createNode(node.data, node.key);
+        rest.priority = node.priority;
+        rest.count = node.count - (k - leftSize);
+        rest.right = node.right;
+        node.count = k - leftSize;
+        node.right = null;
+        updateSize(rest);
+        updateSize(node);
+        return pair(node, rest);
+    }
+
+    /**
+     * Remove all values not less than {@code data} from this treap.
+     *
+     * @return a new treap holding the removed values
+     */
+    public Treap<T> splitByKey(T data) {
+        TreeNode<T>[] parts = splitByKey(root, data, key(data));
+        root = parts[0];
+        return wrap(parts[1]);
+    }
+
+    /**
+     * Keep the {@code k} smallest values (duplicates counted individually) in this treap.
+     *
+     * @return a new treap holding the remaining values
+     */
+    public Treap<T> splitByRank(int k) {
+        TreeNode<T>[] parts = splitByRank(root, Math.max(k, 0));
+        root = parts[0];
+        return wrap(parts[1]);
+    }
+
+    /**
+     * Merge two subtrees where no value of {@code right} is smaller than a value of {@code left}. A value
+     * at the boundary of both is combined into one node (or kept once if duplicates are not allowed).
+     */
+    private TreeNode<T> join(TreeNode<T> left, TreeNode<T> right) {
+        if (isNil(left) || isNil(right)) return merge(left, right);
+        TreeNode<T> max = findMax(left);
+        TreeNode<T> min = findMin(right);
+        if (compare(max.data, max.key, min) == 0) {
+            // Move the boundary duplicates into max, whose ancestors all lie on the right spine
+            int count = allowDuplicates ? min.count : 0;
+            right = splitByRank(right, min.count)[1];
+            for (TreeNode<T> node = left; !isNil(node); node = node.right) node.size += count;
+            max.count += count;
+        }
+        return merge(left, right);
+    }
+
+    /**
+     * Append all values of {@code other}, which must have the same ordering and hold no value less than
+     * those of this treap. {@code other} is left empty.
+     *
+     * @throws IllegalArgumentException if the value ranges overlap
+     */
+    public void merge(Treap<T> other) {
+        if (other == this || isNil(other.root)) return;
+        if (!isNil(root)) {
+            TreeNode<T> max = findMax(root);
+            if (compare(max.data, max.key, findMin(other.root)) > 0) {
+                throw new IllegalArgumentException("Treap ranges overlap");
+            }
+        }
+        root = join(root, other.root);
+        other.root = null;
+    }
+
+    /**
+     * Remove the values ranked {@code from} through {@code to} (1-based, inclusive).
+     *
+     * @return a new treap holding the removed values
+     */
+    public Treap<T> extractRange(int from, int to) {
+        from = Math.max(from, 1);
+        if (from > to) return wrap(null);
+        TreeNode<T>[] tail = splitByRank(root, to);
+        TreeNode<T>[] head = splitByRank(tail[0], from - 1);
+        root = join(head[0], tail[1]);
+        return wrap(head[1]);
+    }
+
+    /* ==================== Validation ==================== */
+
+    @Override
+    protected void checkNode(TreeNode<T> node) {
+        if (!isNil(node.left) && node.left.priority > node.priority
+                || !isNil(node.right) && node.right.priority > node.priority) {
+            throw new IllegalStateException("Heap order violated at " + node.data);
+        }
+    }
+}
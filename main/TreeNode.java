@@ -6,6 +6,8 @@ public class TreeNode<T> {
     int size, count;
     int height; // AVL Tree
     NodeColor color; // Red-Black Tree
+    long key; // Key-extractor mode
+    int priority; // Treap
 
     public TreeNode(T data) {
         this.data = data;
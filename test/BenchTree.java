@@ -0,0 +1,395 @@
+import java.util.*;
+import java.util.function.Supplier;
+
+public class BenchTree {
+    private static final int N = 200_000;
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+
+    private static long sink;
+
+    /**
+     * Run {@code task} a few times for warm-up, then report the best of {@code ROUNDS} runs.
+     */
+    private static void bench(String label, Runnable task) {
+        for (int i = 0; i < WARMUP; i++) task.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-52s %10.2f ms%n", label, best / 1e6);
+    }
+
+    private static <T> void benchTree(String label, Supplier<BinarySearchTree<T>> factory, List<T> values) {
+        bench(label + " insert", () -> {
+            BinarySearchTree<T> tree = factory.get();
+            values.forEach(tree::insert);
+            sink += tree.size();
+        });
+        BinarySearchTree<T> tree = factory.get();
+        values.forEach(tree::insert);
+        bench(label + " search", () -> {
+            for (T value : values) {
+                if (tree.search(value) != null) sink++;
+            }
+        });
+        bench(label + " rank", () -> {
+            for (T value : values) sink += tree.rank(value);
+        });
+        bench(label + " insert + delete", () -> {
+            BinarySearchTree<T> t = factory.get();
+            values.forEach(t::insert);
+            values.forEach(t::delete);
+            sink += t.size();
+        });
+    }
+
+    /* ==================== Key-extractor comparators ==================== */
+
+    record Order(long timestamp, int id, String symbol) {
+    }
+
+    /**
+     * Pack the first 8 chars of an ASCII string big-endian into a long, preserving order.
+     */
+    private static long prefixKey(String s) {
+        long key = 0;
+        for (int i = 0; i < 8; i++) {
+            key = (key << 8) | (i < s.length() ? s.charAt(i) & 0xFF : 0);
+        }
+        return key ^ Long.MIN_VALUE;
+    }
+
+    private static void benchKeyExtractor() {
+        System.out.println("==================== Key-extractor comparators ====================");
+        Random random = new Random(42);
+        List<String> strings = new ArrayList<>(N);
+        for (int i = 0; i < N; i++) {
+            strings.add(Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+        }
+        benchTree("RBTree<String> comparator", () -> new RBTree<>(Comparator.<String>naturalOrder()), strings);
+        benchTree("RBTree<String> long key + tie-break",
+                () -> new RBTree<>(BenchTree::prefixKey, Comparator.<String>naturalOrder()), strings);
+        benchTree("AVLTree<String> comparator", () -> new AVLTree<>(Comparator.<String>naturalOrder()), strings);
+        benchTree("AVLTree<String> long key + tie-break",
+                () -> new AVLTree<>(BenchTree::prefixKey, Comparator.<String>naturalOrder()), strings);
+
+        List<Order> orders = new ArrayList<>(N);
+        for (int i = 0; i < N; i++) {
+            orders.add(new Order(random.nextInt(N * 4), i, "S" + random.nextInt(100)));
+        }
+        Comparator<Order> byTimeThenId = Comparator.comparingLong(Order::timestamp).thenComparingInt(Order::id);
+        benchTree("RBTree<Order> comparator", () -> new RBTree<>(byTimeThenId), orders);
+        benchTree("RBTree<Order> long key + tie-break",
+                () -> new RBTree<>(Order::timestamp, Comparator.comparingInt(Order::id)), orders);
+        benchTree("AVLTree<Order> comparator", () -> new AVLTree<>(byTimeThenId), orders);
+        benchTree("AVLTree<Order> long key + tie-break",
+                () -> new AVLTree<>(Order::timestamp, Comparator.comparingInt(Order::id)), orders);
+        System.out.println();
+    }
+
+    /* ==================== Cursor ingest ==================== */
+
+    private static void benchIngest(String label, List<Long> values) {
+        bench("RBTree " + label + " insert", () -> {
+            RBTree<Long> tree = new RBTree<>();
+            values.forEach(tree::insert);
+            sink += tree.size();
+        });
+        bench("RBTree " + label + " cursor insertNear", () -> {
+            RBTree<Long> tree = new RBTree<>();
+            RBTree<Long>.Cursor cursor = tree.cursor();
+            values.forEach(cursor::insertNear);
+            sink += tree.size();
+        });
+    }
+
+    /**
+     * The cursor only skips the search; size updates and rebalancing remain O(log n) per insert, so
+     * the random case is a control where the cursor is expected to lose to a plain insert.
+     */
+    private static void benchCursor() {
+        System.out.println("==================== Cursor ingest ====================");
+        Random random = new Random(42);
+        List<Long> sorted = new ArrayList<>(N);
+        List<Long> jittered = new ArrayList<>(N);
+        List<Long> shuffled = new ArrayList<>(N);
+        for (int i = 0; i < N; i++) {
+            sorted.add((long) i * 16);
+            jittered.add((long) i * 16 + random.nextInt(64));
+            shuffled.add(random.nextLong());
+        }
+        benchIngest("sorted", sorted);
+        benchIngest("jittered", jittered);
+        benchIngest("random", shuffled);
+        System.out.println();
+    }
+
+    /* ==================== Parallel bulk operations ==================== */
+
+    private static void benchParallel(String label, BinarySearchTree<Long> tree) {
+        bench(label + " sum via inOrderTraversal", () -> {
+            long sum = 0;
+            for (long value : tree.inOrderTraversal()) sum += value;
+            sink += sum;
+        });
+        bench(label + " parallelReduce sum", () -> sink += tree.parallelReduce(0L, Long::sum, Long::sum));
+        bench(label + " filter via inOrderTraversal", () -> {
+            BinarySearchTree<Long> filtered = tree.newTree();
+            for (long value : tree.inOrderTraversal()) {
+                if ((value & 1) == 0) filtered.insert(value);
+            }
+            sink += filtered.size();
+        });
+        bench(label + " parallelFilter", () -> sink += tree.parallelFilter(value -> (value & 1) == 0).size());
+    }
+
+    private static void benchParallel() {
+        System.out.println("==================== Parallel bulk operations ("
+                + Runtime.getRuntime().availableProcessors() + " cores) ====================");
+        Random random = new Random(42);
+        AVLTree<Long> avlTree = new AVLTree<>();
+        RBTree<Long> rbTree = new RBTree<>();
+        for (int i = 0; i < N * 5; i++) {
+            long value = random.nextLong();
+            avlTree.insert(value);
+            rbTree.insert(value);
+        }
+        benchParallel("AVLTree", avlTree);
+        benchParallel("RBTree", rbTree);
+        System.out.println();
+    }
+
+    /* ==================== Hash index ==================== */
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void benchHashed() {
+        System.out.println("==================== Hash index ====================");
+        Random random = new Random(42);
+        List<Long> values = new ArrayList<>(N);
+        List<Long> probes = new ArrayList<>(N);
+        for (int i = 0; i < N; i++) {
+            values.add(random.nextLong());
+            probes.add(random.nextBoolean() ? values.get(random.nextInt(i + 1)) : random.nextLong());
+        }
+        List<Supplier<RBTree<Long>>> factories = List.of(RBTree::new, HashedRBTree::new);
+        for (Supplier<RBTree<Long>> factory : factories) {
+            String label = factory.get().getClass().getSimpleName();
+            long before = usedHeap();
+            RBTree<Long> tree = factory.get();
+            values.forEach(tree::insert);
+            long bytes = usedHeap() - before;
+            System.out.printf("%-52s %10.1f bytes/value%n", label + " heap", (double) bytes / tree.size());
+            bench(label + " search", () -> {
+                for (Long probe : probes) {
+                    if (tree.contains(probe)) sink++;
+                }
+            });
+            bench(label + " count", () -> {
+                for (Long probe : probes) sink += tree.count(probe);
+            });
+            bench(label + " insert + delete", () -> {
+                RBTree<Long> t = factory.get();
+                values.forEach(t::insert);
+                values.forEach(t::delete);
+                sink += t.size();
+            });
+        }
+        System.out.println();
+    }
+
+    /* ==================== Off-heap binary keys ==================== */
+
+    /**
+     * @return wall time of one explicit full collection
+     */
+    private static double fullGcMillis() {
+        long start = System.nanoTime();
+        System.gc();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static void benchOffHeap() {
+        System.out.println("==================== Off-heap binary keys ====================");
+        Random random = new Random(42);
+        for (int n : new int[]{N, N * 5}) {
+            List<byte[]> keys = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                byte[] key = new byte[16];
+                random.nextBytes(key);
+                keys.add(key);
+            }
+            long before = usedHeap();
+            RBTree<byte[]> heapTree = new RBTree<>(Arrays::compareUnsigned);
+            // Copy keys so the tree owns its arrays, as it would in an index
+            keys.forEach(key -> heapTree.insert(key.clone()));
+            System.out.printf("%-52s %10d MB heap, full gc %.1f ms%n", "RBTree<byte[]> " + n + " keys",
+                    (usedHeap() - before) >> 20, fullGcMillis());
+            bench("RBTree<byte[]> " + n + " search", () -> {
+                for (byte[] key : keys) {
+                    if (heapTree.contains(key)) sink++;
+                }
+            });
+            bench("RBTree<byte[]> " + n + " rank", () -> {
+                for (byte[] key : keys) sink += heapTree.rank(key);
+            });
+
+            before = usedHeap();
+            try (OffHeapAVLTree offHeapTree = new OffHeapAVLTree(16)) {
+                keys.forEach(offHeapTree::insert);
+                System.out.printf("%-52s %10d MB heap, %d MB off-heap, full gc %.1f ms%n",
+                        "OffHeapAVLTree " + n + " keys", (usedHeap() - before) >> 20,
+                        offHeapTree.reservedBytes() >> 20, fullGcMillis());
+                bench("OffHeapAVLTree " + n + " search", () -> {
+                    for (byte[] key : keys) {
+                        if (offHeapTree.contains(key)) sink++;
+                    }
+                });
+                bench("OffHeapAVLTree " + n + " rank", () -> {
+                    for (byte[] key : keys) sink += offHeapTree.rank(key);
+                });
+            }
+            bench("RBTree<byte[]> " + n + " insert", () -> {
+                RBTree<byte[]> tree = new RBTree<>(Arrays::compareUnsigned);
+                keys.forEach(key -> tree.insert(key.clone()));
+                sink += tree.size();
+            });
+            bench("OffHeapAVLTree " + n + " insert", () -> {
+                try (OffHeapAVLTree tree = new OffHeapAVLTree(16)) {
+                    keys.forEach(tree::insert);
+                    sink += tree.size();
+                }
+            });
+        }
+        System.out.println();
+    }
+
+    /* ==================== Frozen Eytzinger layout ==================== */
+
+    private static void benchFrozen() {
+        System.out.println("==================== Frozen Eytzinger layout ====================");
+        Random random = new Random(42);
+        int n = N * 5;
+        List<Integer> probes = new ArrayList<>(n);
+        AVLTree<Integer> avlTree = new AVLTree<>();
+        RBTree<Integer> rbTree = new RBTree<>();
+        for (int i = 0; i < n; i++) {
+            int value = random.nextInt();
+            avlTree.insert(value);
+            rbTree.insert(value);
+            probes.add(random.nextBoolean() ? value : random.nextInt());
+        }
+        int[] primitiveProbes = probes.stream().mapToInt(Integer::intValue).toArray();
+        FrozenTree<Integer> frozen = rbTree.freeze();
+        FrozenLongTree frozenLong = rbTree.freezeLong(Integer::longValue);
+        FrozenIntTree frozenInt = rbTree.freezeInt(Integer::intValue);
+
+        bench("AVLTree search", () -> {
+            for (Integer probe : probes) {
+                if (avlTree.contains(probe)) sink++;
+            }
+        });
+        bench("RBTree search", () -> {
+            for (Integer probe : probes) {
+                if (rbTree.contains(probe)) sink++;
+            }
+        });
+        bench("FrozenTree search", () -> {
+            for (Integer probe : probes) sink += frozen.search(probe);
+        });
+        bench("FrozenLongTree search", () -> {
+            for (int probe : primitiveProbes) sink += frozenLong.search(probe);
+        });
+        bench("FrozenIntTree search", () -> {
+            for (int probe : primitiveProbes) sink += frozenInt.search(probe);
+        });
+        bench("RBTree rank", () -> {
+            for (Integer probe : probes) sink += rbTree.rank(probe);
+        });
+        bench("FrozenIntTree rank", () -> {
+            for (int probe : primitiveProbes) sink += frozenInt.rank(probe);
+        });
+        bench("FrozenIntTree floor + ceiling", () -> {
+            for (int probe : primitiveProbes) sink += frozenInt.floor(probe) + frozenInt.ceiling(probe);
+        });
+        bench("RBTree select", () -> {
+            for (int k = 1; k <= rbTree.size(); k++) sink += rbTree.select(k);
+        });
+        bench("FrozenIntTree select", () -> {
+            for (int k = 1; k <= frozenInt.size(); k++) sink += frozenInt.get(frozenInt.select(k));
+        });
+        bench("RBTree freezeInt", () -> sink += rbTree.freezeInt(Integer::intValue).size());
+        System.out.println();
+    }
+
+    /* ==================== Treap split & merge ==================== */
+
+    /**
+     * Split {@code tree} at rank {@code k} the way it has to be done without split: traverse and reinsert.
+     */
+    private static void rebuildSplit(BinarySearchTree<Long> tree, int k) {
+        BinarySearchTree<Long> low = new AVLTree<>(), high = new AVLTree<>();
+        List<Long> values = tree.inOrderTraversal();
+        for (int i = 0; i < values.size(); i++) {
+            (i < k ? low : high).insert(values.get(i));
+        }
+        sink += low.size() + high.size();
+    }
+
+    private static void benchTreap() {
+        System.out.println("==================== Treap split & merge ====================");
+        Random random = new Random(42);
+        List<Long> values = new ArrayList<>(N);
+        Treap<Long> treap = new Treap<>();
+        AVLTree<Long> avlTree = new AVLTree<>();
+        for (int i = 0; i < N; i++) {
+            long value = random.nextLong();
+            values.add(value);
+            treap.insert(value);
+            avlTree.insert(value);
+        }
+        int size = treap.size();
+        benchTree("Treap<Long>", Treap::new, values);
+        bench("Treap splitByRank + merge x1000", () -> {
+            for (int i = 0; i < 1000; i++) {
+                Treap<Long> rest = treap.splitByRank(random.nextInt(size));
+                treap.merge(rest);
+            }
+            sink += treap.size();
+        });
+        bench("Treap splitByKey + merge x1000", () -> {
+            for (int i = 0; i < 1000; i++) {
+                Treap<Long> rest = treap.splitByKey(random.nextLong());
+                treap.merge(rest);
+            }
+            sink += treap.size();
+        });
+        bench("Treap top-100 extractRange + merge x1000", () -> {
+            for (int i = 0; i < 1000; i++) {
+                Treap<Long> top = treap.extractRange(size - 99, size);
+                treap.merge(top);
+            }
+            sink += treap.size();
+        });
+        bench("AVLTree split via inOrderTraversal + reinsert", () -> rebuildSplit(avlTree, size / 2));
+        System.out.println();
+    }
+
+    public static void main(String[] args) {
+        benchKeyExtractor();
+        benchCursor();
+        benchParallel();
+        benchHashed();
+        benchOffHeap();
+        benchFrozen();
+        benchTreap();
+        System.out.println("sink: " + sink);
+    }
+}
@@ -0,0 +1,372 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Long-running mixed-workload soak test.
+ * <p>
+ * Runs a configurable insert/delete/search/rank/select mix against one tree, records per-operation
+ * latency in log-linear (HDR-style) histograms, periodically verifies the tree invariants, and reports
+ * throughput, percentile latency, tree height, heap use and GC time per interval.
+ * <p>
+ * Usage: {@code java SoakTree [name=value ...]}
+ * <li>{@code tree=rb|avl|bst} (default rb)</li>
+ * <li>{@code dist=random|sorted|zipf} key distribution (default random)</li>
+ * <li>{@code mix=insert:40,delete:30,search:20,rank:5,select:5} operation weights</li>
+ * <li>{@code keys=1000000} key space (sorted: sliding window size)</li>
+ * <li>{@code zipf=0.99} Zipfian exponent</li>
+ * <li>{@code duration=3600} seconds, {@code report=10} seconds, {@code check=60} seconds</li>
+ * <li>{@code seed=42}</li>
+ */
+public class SoakTree {
+    private static final String[] OPS = {"insert", "delete", "search", "rank", "select"};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    /* ==================== Histogram ==================== */
+
+    /**
+     * Log-linear histogram of non-negative values: each power-of-two range is split into
+     * {@code 2^SUB_BITS} linear buckets, so recorded values keep about 1% relative precision.
+     */
+    static class LatencyHistogram {
+        private static final int SUB_BITS = 7;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+
+        private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_COUNT];
+        private long total, max;
+
+        private static int index(long value) {
+            int magnitude = 64 - Long.numberOfLeadingZeros(value >>> SUB_BITS);
+            return magnitude * SUB_COUNT + (int) (value >>> Math.max(magnitude - 1, 0)) - (magnitude == 0 ? 0 : SUB_COUNT);
+        }
+
+        /**
+         * @return highest value that maps to bucket {@code index}
+         */
+        private static long upperBound(int index) {
+            int magnitude = index / SUB_COUNT;
+            long sub = index % SUB_COUNT + (magnitude == 0 ? 0 : SUB_COUNT);
+            int shift = Math.max(magnitude - 1, 0);
+            return ((sub + 1) << shift) - 1;
+        }
+
+        void record(long value) {
+            counts[index(Math.max(value, 0))]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        long count() {
+            return total;
+        }
+
+        long max() {
+            return max;
+        }
+
+        long percentile(double percentile) {
+            if (total == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        void reset() {
+            Arrays.fill(counts, 0);
+            total = max = 0;
+        }
+    }
+
+    /* ==================== Key distributions ==================== */
+
+    interface KeySource {
+        long nextInsert();
+
+        long nextDelete();
+
+        long nextLookup();
+    }
+
+    static class UniformKeys implements KeySource {
+        private final Random random;
+        private final int keys;
+
+        UniformKeys(Random random, int keys) {
+            this.random = random;
+            this.keys = keys;
+        }
+
+        public long nextInsert() {
+            return random.nextInt(keys);
+        }
+
+        public long nextDelete() {
+            return random.nextInt(keys);
+        }
+
+        public long nextLookup() {
+            return random.nextInt(keys);
+        }
+    }
+
+    /**
+     * Ascending inserts with deletes trailing {@code window} keys behind, like a time-series index.
+     */
+    static class SortedKeys implements KeySource {
+        private final Random random;
+        private final int window;
+        private long head, tail;
+
+        SortedKeys(Random random, int window) {
+            this.random = random;
+            this.window = window;
+        }
+
+        public long nextInsert() {
+            return head++;
+        }
+
+        public long nextDelete() {
+            return head - tail > window / 2 ? tail++ : random.nextInt(window) + tail;
+        }
+
+        public long nextLookup() {
+            return tail + (long) (random.nextDouble() * Math.max(head - tail, 1));
+        }
+    }
+
+    /**
+     * Zipfian ranks over {@code [0, keys)} via inverse CDF; rank {@code r} maps to key {@code r}.
+     */
+    static class ZipfKeys implements KeySource {
+        private final Random random;
+        private final double[] cdf;
+
+        ZipfKeys(Random random, int keys, double exponent) {
+            this.random = random;
+            this.cdf = new double[keys];
+            double sum = 0;
+            for (int i = 0; i < keys; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < keys; i++) cdf[i] /= sum;
+        }
+
+        private long next() {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return index >= 0 ? index : Math.min(-index - 1, cdf.length - 1);
+        }
+
+        public long nextInsert() {
+            return next();
+        }
+
+        public long nextDelete() {
+            return next();
+        }
+
+        public long nextLookup() {
+            return next();
+        }
+    }
+
+    /* ==================== Soak ==================== */
+
+    private static long sink;
+
+    private static BinarySearchTree<Long> createTree(String name) {
+        switch (name) {
+            case "bst":
+                return new BinarySearchTree<>(true);
+            case "avl":
+                return new AVLTree<>(true);
+            case "rb":
+                return new RBTree<>(true);
+            default:
+                throw new IllegalArgumentException("Unknown tree: " + name);
+        }
+    }
+
+    private static KeySource createKeys(String name, Random random, int keys, double exponent) {
+        switch (name) {
+            case "random":
+                return new UniformKeys(random, keys);
+            case "sorted":
+                return new SortedKeys(random, keys);
+            case "zipf":
+                return new ZipfKeys(random, keys, exponent);
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + name);
+        }
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPS.length];
+        for (String part : mix.split(",")) {
+            String[] entry = part.split(":");
+            int op = Arrays.asList(OPS).indexOf(entry[0].trim());
+            if (op < 0 || entry.length != 2) throw new IllegalArgumentException("Bad mix entry: " + part);
+            weights[op] = Integer.parseInt(entry[1].trim());
+            if (weights[op] < 0) throw new IllegalArgumentException("Negative weight in mix entry: " + part);
+        }
+        if (Arrays.stream(weights).sum() <= 0) throw new IllegalArgumentException("Mix has no positive weight: " + mix);
+        return weights;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    private static void printHistograms(String title, LatencyHistogram[] histograms, double seconds) {
+        System.out.printf("  %-8s %12s %10s", title, "ops/s", "count");
+        for (double p : PERCENTILES) System.out.printf(" %10s", p == (long) p ? "p" + (long) p : "p" + p);
+        System.out.printf(" %10s  (latency in us)%n", "max");
+        for (int op = 0; op < OPS.length; op++) {
+            LatencyHistogram h = histograms[op];
+            if (h.count() == 0) continue;
+            System.out.printf("  %-8s %12.0f %10d", OPS[op], h.count() / seconds, h.count());
+            for (double p : PERCENTILES) System.out.printf(" %10.2f", h.percentile(p) / 1e3);
+            System.out.printf(" %10.2f%n", h.max() / 1e3);
+        }
+    }
+
+    private static void soak(Map<String, String> options, int[] weights) {
+        String treeName = options.getOrDefault("tree", "rb");
+        String distName = options.getOrDefault("dist", "random");
+        int keys = Integer.parseInt(options.getOrDefault("keys", "1000000"));
+        double exponent = Double.parseDouble(options.getOrDefault("zipf", "0.99"));
+        long durationNanos = (long) (Double.parseDouble(options.getOrDefault("duration", "3600")) * 1e9);
+        long reportNanos = (long) (Double.parseDouble(options.getOrDefault("report", "10")) * 1e9);
+        long checkNanos = (long) (Double.parseDouble(options.getOrDefault("check", "60")) * 1e9);
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed", "42")));
+
+        BinarySearchTree<Long> tree = createTree(treeName);
+        KeySource source = createKeys(distName, random, keys, exponent);
+        int totalWeight = Arrays.stream(weights).sum();
+        LatencyHistogram[] interval = new LatencyHistogram[OPS.length];
+        LatencyHistogram[] overall = new LatencyHistogram[OPS.length];
+        for (int op = 0; op < OPS.length; op++) {
+            interval[op] = new LatencyHistogram();
+            overall[op] = new LatencyHistogram();
+        }
+        System.out.printf("Soaking %s with %s keys (space %d), mix %s%n", treeName, distName, keys,
+                options.getOrDefault("mix", "default"));
+
+        Runtime runtime = Runtime.getRuntime();
+        long start = System.nanoTime();
+        long lastReport = start, nextReport = start + reportNanos, nextCheck = start + checkNanos;
+        long lastGc = gcMillis();
+        while (true) {
+            // Check the clock only every few operations to keep its cost out of the measurements
+            for (int i = 0; i < 256; i++) {
+                int pick = random.nextInt(totalWeight);
+                int op = 0;
+                while (pick >= weights[op]) pick -= weights[op++];
+                long opStart;
+                switch (op) {
+                    case 0: {
+                        long key = source.nextInsert();
+                        opStart = System.nanoTime();
+                        tree.insert(key);
+                        break;
+                    }
+                    case 1: {
+                        long key = source.nextDelete();
+                        opStart = System.nanoTime();
+                        tree.delete(key);
+                        break;
+                    }
+                    case 2: {
+                        long key = source.nextLookup();
+                        opStart = System.nanoTime();
+                        if (tree.search(key) != null) sink++;
+                        break;
+                    }
+                    case 3: {
+                        long key = source.nextLookup();
+                        opStart = System.nanoTime();
+                        sink += tree.rank(key);
+                        break;
+                    }
+                    default: {
+                        int k = 1 + random.nextInt(Math.max(tree.size(), 1));
+                        opStart = System.nanoTime();
+                        Long value = tree.select(k);
+                        if (value != null) sink += value;
+                    }
+                }
+                interval[op].record(System.nanoTime() - opStart);
+            }
+
+            long now = System.nanoTime();
+            if (now >= nextCheck) {
+                long checkStart = System.nanoTime();
+                try {
+                    tree.checkInvariants();
+                } catch (IllegalStateException e) {
+                    System.out.println("INVARIANT VIOLATION after " + (now - start) / 1_000_000_000 + "s: " + e.getMessage());
+                    System.exit(1);
+                }
+                System.out.printf("[%7.1fs] invariants ok (%.1f ms)%n", (now - start) / 1e9,
+                        (System.nanoTime() - checkStart) / 1e6);
+                nextCheck = System.nanoTime() + checkNanos;
+            }
+            if (now >= nextReport || now - start >= durationNanos) {
+                long gc = gcMillis();
+                System.out.printf("[%7.1fs] size %d, height %d, heap %d MB, gc %d ms%n", (now - start) / 1e9,
+                        tree.size(), tree.height(), (runtime.totalMemory() - runtime.freeMemory()) >> 20, gc - lastGc);
+                printHistograms("interval", interval, (now - lastReport) / 1e9);
+                for (int op = 0; op < OPS.length; op++) {
+                    overall[op].add(interval[op]);
+                    interval[op].reset();
+                }
+                lastGc = gc;
+                lastReport = now;
+                nextReport = now + reportNanos;
+            }
+            if (now - start >= durationNanos) break;
+        }
+        System.out.printf("==================== Summary (%.1fs) ====================%n", (System.nanoTime() - start) / 1e9);
+        printHistograms("overall", overall, (System.nanoTime() - start) / 1e9);
+        System.out.println("sink: " + sink);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected name=value: " + arg);
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        // Validate the mix up front so a bad one is reported as a usage error
+        int[] weights = parseMix(options.getOrDefault("mix", "insert:40,delete:30,search:20,rank:5,select:5"));
+        // The recursive BST paths degenerate to O(n) depth under sorted keys, so give them a deep stack
+        Thread thread = new Thread(null, () -> {
+            try {
+                soak(options, weights);
+            } catch (Throwable e) {
+                // Anything escaping the loop is a failure: a dead thread would otherwise exit with status 0
+                System.out.println("SOAK FAILED: " + e);
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }, "soak", 1L << 30);
+        thread.start();
+        thread.join();
+    }
+}
@@ -1,17 +1,164 @@
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 public class TestTree {
     private static void testTree(BinarySearchTree<Integer> tree) {
         List<Integer> values = Arrays.asList(17, 18, 23, 34, 27, 15, 9, 6, 25, 13, 10, 37);
         values.forEach(tree::insert);
+        tree.checkInvariants();
         System.out.println(tree.inOrderTraversal());
         List<Integer> removeValues = Arrays.asList(18, 25, 15, 6, 13, 37, 27, 17, 34, 9, 10);
         removeValues.forEach(value -> {
             tree.delete(value);
+            tree.checkInvariants();
             System.out.println("Deleted " + value + ": " + tree.inOrderTraversal());
         });
     }
 
+    /**
+     * Delete nodes with two children whose successor sits deeper than their right child, checking
+     * that size and select stay consistent with the remaining values.
+     */
+    private static void testDeleteSizes(BinarySearchTree<Integer> tree) {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 32; i++) {
+            tree.insert(i);
+            expected.add(i);
+        }
+        List<Integer> removeValues = Arrays.asList(16, 8, 24, 4, 12, 20, 28, 2, 6, 10, 14, 18, 22, 26, 30);
+        for (int value : removeValues) {
+            tree.delete(value);
+            expected.remove((Integer) value);
+            if (tree.size() != expected.size()) {
+                throw new IllegalStateException("Size " + tree.size() + " after deleting " + value + ", expected " + expected.size());
+            }
+            for (int k = 1; k <= expected.size(); k++) {
+                if (!expected.get(k - 1).equals(tree.select(k))) {
+                    throw new IllegalStateException("select(" + k + ") = " + tree.select(k) + " after deleting " + value);
+                }
+            }
+        }
+        System.out.println("Size after deletes: " + tree.size() + ", values " + tree.inOrderTraversal());
+    }
+
+    private static void testCursor(RBTree<Integer> tree) {
+        RBTree<Integer>.Cursor cursor = tree.cursor();
+        List<Integer> values = Arrays.asList(10, 12, 11, 15, 13, 14, 20, 18, 25, 22);
+        values.forEach(cursor::insertNear);
+        System.out.println(tree.inOrderTraversal());
+        cursor.seek(16);
+        System.out.println("Seek 16: " + cursor.get());
+        cursor.prev();
+        System.out.println("Prev: " + cursor.get());
+        cursor.deleteAtCursor();
+        System.out.println("Deleted at cursor: " + tree.inOrderTraversal() + ", cursor at " + cursor.get());
+        cursor.next();
+        System.out.println("Next: " + cursor.get());
+    }
+
+    private static void testParallel(BinarySearchTree<Integer> tree) {
+        for (int i = 1; i <= 20; i++) tree.insert(i);
+        System.out.println("Sum: " + tree.parallelReduce(0, Integer::sum, Integer::sum, 2));
+        System.out.println("Joined: " + tree.parallelReduce("", (s, value) -> s + value + " ", String::concat, 2));
+        BinarySearchTree<Integer> even = tree.parallelFilter(value -> value % 2 == 0, 2);
+        even.checkInvariants();
+        System.out.println("Even: " + even.inOrderTraversal() + ", level order " + even.levelOrderTraversal());
+        // 11 matches: the deepest level of the balanced build is only partly filled
+        BinarySearchTree<Integer> partial = tree.parallelFilter(value -> value % 2 == 0 || value == 1, 1);
+        partial.checkInvariants();
+        System.out.println("Partial: " + partial.inOrderTraversal() + ", size " + partial.size());
+        try {
+            tree.parallelForEach(value -> {
+            }, -1);
+            throw new IllegalStateException("Negative threshold accepted");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Negative threshold rejected: " + e.getMessage());
+        }
+    }
+
+    private static void testOffHeap() {
+        try (OffHeapAVLTree tree = new OffHeapAVLTree(2)) {
+            List<Integer> values = Arrays.asList(17, 18, 23, 34, 27, 15, 9, 6, 25, 13, 10, 37, 200, 300);
+            values.forEach(value -> tree.insert(new byte[]{(byte) (value >> 8), value.byteValue()}));
+            tree.checkInvariants();
+            List<Integer> decoded = new ArrayList<>();
+            tree.inOrderTraversal().forEach(key -> decoded.add((key[0] & 0xFF) << 8 | key[1] & 0xFF));
+            System.out.println(decoded);
+            System.out.println("Rank of 200: " + tree.rank(new byte[]{0, (byte) 200}) + ", select(3): "
+                    + Arrays.toString(tree.select(3)));
+            int handle = tree.search(new byte[]{1, 44});
+            System.out.println("Search 300: " + Arrays.toString(tree.keyAt(handle)) + " x" + tree.countAt(handle)
+                    + ", search 1: " + tree.keyAt(tree.search(new byte[]{0, 1})));
+            tree.delete(new byte[]{0, (byte) 200});
+            tree.checkInvariants();
+            System.out.println("Deleted 200: contains " + tree.contains(new byte[]{0, (byte) 200}) + ", size " + tree.size());
+        }
+        try {
+            new OffHeapAVLTree(OffHeapAVLTree.MAX_KEY_WIDTH + 1).close();
+            throw new IllegalStateException("Oversized key width accepted");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Oversized key width rejected: " + e.getMessage());
+        }
+    }
+
+    private static void testFreeze(BinarySearchTree<Integer> tree) {
+        Arrays.asList(17, 18, 23, 34, 27, 15, 9, 6, 25, 13, 10, 37, 13).forEach(tree::insert);
+        FrozenTree<Integer> frozen = tree.freeze();
+        FrozenIntTree frozenInt = tree.freezeInt(Integer::intValue);
+        System.out.println("Floor 20: " + frozen.get(frozen.floor(20)) + ", ceiling 20: " + frozen.get(frozen.ceiling(20))
+                + ", rank 25: " + frozen.rank(25) + ", select 5: " + frozen.get(frozen.select(5)));
+        System.out.println("Floor 20: " + frozenInt.get(frozenInt.floor(20)) + ", ceiling 20: "
+                + frozenInt.get(frozenInt.ceiling(20)) + ", rank 25: " + frozenInt.rank(25) + ", count 13: "
+                + frozenInt.count(13) + ", size: " + frozenInt.size());
+    }
+
+    private static void testTreapSplit(Treap<Integer> treap) {
+        for (int i = 1; i <= 12; i++) treap.insert(i);
+        treap.insert(6);
+        Treap<Integer> high = treap.splitByKey(8);
+        System.out.println("Split by key 8: " + treap.inOrderTraversal() + " | " + high.inOrderTraversal());
+        Treap<Integer> rest = treap.splitByRank(5);
+        System.out.println("Split by rank 5: " + treap.inOrderTraversal() + " | " + rest.inOrderTraversal());
+        treap.merge(rest);
+        treap.merge(high);
+        treap.checkInvariants();
+        System.out.println("Merged: " + treap.inOrderTraversal());
+        Treap<Integer> middle = treap.extractRange(4, 8);
+        treap.checkInvariants();
+        System.out.println("Extract ranks 4-8: " + middle.inOrderTraversal() + ", left " + treap.inOrderTraversal());
+    }
+
+    /**
+     * Index lookups must agree with the comparator even where it disagrees with equals.
+     */
+    private static void testHashedOrdering() {
+        HashedRBTree<String> strings = new HashedRBTree<>(String.CASE_INSENSITIVE_ORDER, s -> s.toLowerCase().hashCode());
+        strings.insert("Foo");
+        strings.checkInvariants();
+        System.out.println("Index " + strings.indexCapacity() + ", contains foo: " + strings.contains("foo"));
+        if (!strings.contains("foo")) throw new IllegalStateException("Case-insensitive lookup failed");
+        try {
+            new HashedRBTree<String>(null, String.CASE_INSENSITIVE_ORDER, null, false);
+            throw new IllegalStateException("Comparator without a hash function accepted");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Comparator without hash rejected: " + e.getMessage());
+        }
+
+        Comparator<byte[]> unsigned = Arrays::compareUnsigned;
+        ToIntFunction<byte[]> contentHash = Arrays::hashCode;
+        HashedRBTree<byte[]> bytes = new HashedRBTree<>(unsigned, contentHash);
+        for (int i = 0; i < 20; i++) bytes.insert(new byte[]{(byte) i, (byte) -i});
+        bytes.checkInvariants();
+        boolean found = bytes.contains(new byte[]{5, -5});
+        bytes.delete(new byte[]{5, -5});
+        bytes.checkInvariants();
+        System.out.println("byte[] contains copy: " + found + ", after delete: " + bytes.contains(new byte[]{5, -5})
+                + ", size " + bytes.size());
+        if (!found || bytes.contains(new byte[]{5, -5}) || bytes.size() != 19) {
+            throw new IllegalStateException("byte[] lookup by content failed");
+        }
+    }
+
     public static void main(String[] args) {
         BinarySearchTree<Integer> bst = new BinarySearchTree<>();
         AVLTree<Integer> avlTree = new AVLTree<>();
@@ -27,6 +174,57 @@ public class TestTree {
 
         System.out.println("==================== Test RBTree ====================");
         testTree(rbTree);
+        testDeleteSizes(new RBTree<>());
+        System.out.println();
+
+        System.out.println("==================== Test Treap ====================");
+        testTree(new Treap<>());
+        testTreapSplit(new Treap<>(true));
+        System.out.println();
+
+        System.out.println("==================== Test Key Extractor ====================");
+        testTree(new AVLTree<>(Integer::longValue));
+        testTree(new RBTree<Integer>(value -> value / 10, Comparator.naturalOrder()));
+        System.out.println();
+
+        System.out.println("==================== Test RBTree Cursor ====================");
+        testCursor(new RBTree<>());
+        System.out.println();
+
+        System.out.println("==================== Test HashedRBTree ====================");
+        testTree(new HashedRBTree<>());
+        testCursor(new HashedRBTree<>());
+        testHashedOrdering();
+        System.out.println();
+
+        System.out.println("==================== Test Parallel ====================");
+        testParallel(new AVLTree<>());
+        testParallel(new RBTree<>());
+        testParallel(new Treap<>());
+        testParallel(new HashedRBTree<>());
+        System.out.println();
+
+        System.out.println("==================== Test Freeze ====================");
+        testFreeze(new AVLTree<>(true));
+        testFreeze(new RBTree<>(true));
+        try {
+            AbstractFrozenTree.layout(AbstractFrozenTree.MAX_KEYS + 1);
+            throw new IllegalStateException("Oversized layout accepted");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Oversized layout rejected: " + e.getMessage());
+        }
+        try {
+            AVLTree<Integer> tree = new AVLTree<>();
+            Arrays.asList(1, 2, 3).forEach(tree::insert);
+            tree.freezeInt(value -> -value);
+            throw new IllegalStateException("Order-reversing key mapping accepted");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Non-monotonic mapping rejected: " + e.getMessage());
+        }
+        System.out.println();
+
+        System.out.println("==================== Test OffHeapAVLTree ====================");
+        testOffHeap();
         System.out.println();
     }
 }